@@ -0,0 +1,88 @@
+package com.alibaba.example.chatmemory.benchmark;
+
+import com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor;
+import com.alibaba.example.chatmemory.mem0.MemZeroDocumentMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor.*;
+
+/**
+ * MemZeroChatMemoryAdvisor.before 的提示词组装：检索（内存中的固定结果）、按 token 预算打包、渲染模板、改写请求
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemZeroChatMemoryAdvisorBenchmark {
+
+    @Param({"10", "100"})
+    public int memories;
+
+    private MemZeroChatMemoryAdvisor advisor;
+
+    @Setup
+    public void setup() {
+        List<Document> documents = MemZeroDocumentMapper.toDocuments(MemZeroFixtures.searchResponse(memories, memories / 5));
+        // WITH_RESPONSE：用户消息推迟到 after 写入，before 中不产生后台写入
+        advisor = MemZeroChatMemoryAdvisor.builder(new FixedVectorStore(documents))
+                .scheduler(Schedulers.immediate())
+                .userMessageWriteMode(UserMessageWriteMode.WITH_RESPONSE)
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+    }
+
+    @Benchmark
+    public ChatClientRequest before() {
+        // UserMessage 的 metadata 会被 advisor 修改，每次使用新的请求
+        ChatClientRequest request = ChatClientRequest.builder()
+                .prompt(new Prompt(new UserMessage("我下周要去杭州出差，帮我推荐几家西湖边的餐厅")))
+                .context(Map.of(USER_ID, MemZeroFixtures.USER_ID, AGENT_ID, MemZeroFixtures.AGENT_ID,
+                        RUN_ID, MemZeroFixtures.RUN_ID))
+                .build();
+        return advisor.before(request, null);
+    }
+
+    /**
+     * 检索总是返回同一组文档，只测量 advisor 自身的开销
+     */
+    private static final class FixedVectorStore implements VectorStore {
+
+        private final List<Document> documents;
+
+        private FixedVectorStore(List<Document> documents) {
+            this.documents = documents;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return documents;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.alibaba.example.chatmemory.benchmark;
+
+import com.alibaba.example.chatmemory.mem0.MemZeroServerRequest;
+import com.alibaba.example.chatmemory.mem0.MemZeroServerResp;
+import com.alibaba.example.chatmemory.mem0.ReactiveMemZeroServiceClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemZeroServiceClient 的请求序列化和响应反序列化，使用客户端同样配置的 ObjectMapper
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemZeroClientCodecBenchmark {
+
+    @Param({"10", "100"})
+    public int results;
+
+    private ObjectMapper objectMapper;
+
+    private MemZeroServerRequest.MemoryCreate memoryCreate;
+
+    private MemZeroServerRequest.SearchRequest searchRequest;
+
+    private byte[] searchResponse;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = ReactiveMemZeroServiceClient.createObjectMapper();
+        memoryCreate = MemZeroFixtures.memoryCreate();
+        searchRequest = MemZeroFixtures.searchRequest();
+        // Mem0 返回 ISO-8601 格式的时间
+        searchResponse = objectMapper.copy()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValueAsBytes(MemZeroFixtures.searchResponse(results, results / 5));
+    }
+
+    @Benchmark
+    public byte[] writeMemoryCreate() throws IOException {
+        return objectMapper.writeValueAsBytes(memoryCreate);
+    }
+
+    @Benchmark
+    public byte[] writeSearchRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(searchRequest);
+    }
+
+    @Benchmark
+    public MemZeroServerResp readSearchResponse() throws IOException {
+        return objectMapper.readValue(searchResponse, MemZeroServerResp.class);
+    }
+}
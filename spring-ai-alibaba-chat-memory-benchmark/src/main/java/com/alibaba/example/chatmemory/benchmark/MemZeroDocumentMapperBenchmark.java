@@ -0,0 +1,39 @@
+package com.alibaba.example.chatmemory.benchmark;
+
+import com.alibaba.example.chatmemory.mem0.MemZeroDocumentMapper;
+import com.alibaba.example.chatmemory.mem0.MemZeroServerResp;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemZeroMemoryStore.similaritySearch 的结果映射：Mem0 响应转换为 Document 列表
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemZeroDocumentMapperBenchmark {
+
+    @Param({"10", "100"})
+    public int results;
+
+    @Param({"0", "20"})
+    public int relations;
+
+    private MemZeroServerResp response;
+
+    @Setup
+    public void setup() {
+        response = MemZeroFixtures.searchResponse(results, relations);
+    }
+
+    @Benchmark
+    public List<Document> toDocuments() {
+        return MemZeroDocumentMapper.toDocuments(response);
+    }
+}
@@ -0,0 +1,61 @@
+package com.alibaba.example.chatmemory.benchmark;
+
+import com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.*;
+
+/**
+ * 过滤条件转换：带缓存和不带缓存的 compile，以及生成 JSON 字符串的 convertExpression
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemZeroFilterExpressionConverterBenchmark {
+
+    @Param({"simple", "nested"})
+    public String shape;
+
+    private Filter.Expression expression;
+
+    private MemZeroFilterExpressionConverter cached;
+
+    private MemZeroFilterExpressionConverter uncached;
+
+    @Setup
+    public void setup() {
+        expression = switch (shape) {
+            case "simple" -> eq("category", "preference");
+            case "nested" -> and(eq("user_id", MemZeroFixtures.USER_ID),
+                    or(in("category", List.of("preference", "fact", "plan")),
+                            not(and(gte("score", 0.3), lt("created_at", "2025-06-24")))));
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        };
+        cached = new MemZeroFilterExpressionConverter();
+        // 容量为 0，每次都重新编译
+        uncached = new MemZeroFilterExpressionConverter(0);
+    }
+
+    @Benchmark
+    public Map<String, Object> compileCached() {
+        return cached.compile(expression);
+    }
+
+    @Benchmark
+    public Map<String, Object> compileUncached() {
+        return uncached.compile(expression);
+    }
+
+    @Benchmark
+    public String convertExpression() {
+        return cached.convertExpression(expression);
+    }
+}
@@ -0,0 +1,80 @@
+package com.alibaba.example.chatmemory.benchmark;
+
+import com.alibaba.example.chatmemory.mem0.MemZeroServerRequest;
+import com.alibaba.example.chatmemory.mem0.MemZeroServerResp;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的 Mem0 请求和响应，数据形状与 server/main.py 返回的一致，内容固定以保证结果可比
+ */
+final class MemZeroFixtures {
+
+    static final String USER_ID = "bench_user";
+    static final String AGENT_ID = "bench_agent";
+    static final String RUN_ID = "bench_run";
+
+    private static final String[] MEMORIES = {
+            "Likes hiking in the mountains on weekends",
+            "喜欢在周末去杭州西湖边散步",
+            "Allergic to peanuts and shellfish",
+            "正在学习 Spring AI 和 Mem0 的集成",
+            "Prefers concise answers with code examples",
+            "每天早上喝一杯美式咖啡",
+            "Works as a backend engineer on payment systems",
+            "计划明年去日本旅行"
+    };
+
+    private MemZeroFixtures() {
+    }
+
+    static MemZeroServerResp searchResponse(int results, int relations) {
+        ZonedDateTime createdAt = ZonedDateTime.parse("2025-06-24T14:28:00.123456+08:00");
+        List<MemZeroServerResp.MemZeroResults> memories = new ArrayList<>(results);
+        for (int i = 0; i < results; i++) {
+            memories.add(new MemZeroServerResp.MemZeroResults(
+                    "6f1c2f0e-8d4b-4c8e-9a7b-" + String.format("%012d", i),
+                    MEMORIES[i % MEMORIES.length] + " #" + i,
+                    Integer.toHexString(MEMORIES[i % MEMORIES.length].hashCode() + i),
+                    Map.of("source", "chat", "category", i % 2 == 0 ? "preference" : "fact"),
+                    USER_ID,
+                    createdAt.plusMinutes(i),
+                    i % 3 == 0 ? createdAt.plusHours(i) : null,
+                    AGENT_ID,
+                    RUN_ID,
+                    1.0 - i / (double) Math.max(results, 1),
+                    i % 2 == 0 ? "user" : "assistant"));
+        }
+        List<MemZeroServerResp.MemZeroRelation> graph = new ArrayList<>(relations);
+        for (int i = 0; i < relations; i++) {
+            graph.add(new MemZeroServerResp.MemZeroRelation(USER_ID, i % 2 == 0 ? "likes" : "lives_in",
+                    "entity_" + i, "destination_" + i));
+        }
+        return new MemZeroServerResp(memories, graph);
+    }
+
+    static MemZeroServerRequest.MemoryCreate memoryCreate() {
+        return MemZeroServerRequest.MemoryCreate.builder()
+                .messages(List.of(
+                        new MemZeroServerRequest.Message("user", "我下周要去杭州出差，帮我推荐几家西湖边的餐厅"),
+                        new MemZeroServerRequest.Message("assistant", "可以试试楼外楼、知味观和外婆家，楼外楼的西湖醋鱼比较有名。")))
+                .metadata(Map.of("source", "chat", "channel", "web"))
+                .userId(USER_ID)
+                .agentId(AGENT_ID)
+                .runId(RUN_ID)
+                .build();
+    }
+
+    static MemZeroServerRequest.SearchRequest searchRequest() {
+        return MemZeroServerRequest.SearchRequest.builder()
+                .query("推荐杭州的餐厅")
+                .userId(USER_ID)
+                .agentId(AGENT_ID)
+                .runId(RUN_ID)
+                .limit(20)
+                .build();
+    }
+}
@@ -0,0 +1,214 @@
+package com.alibaba.example.chatmemory.benchmark.e2e;
+
+import com.alibaba.example.chatmemory.ChatMemoryApplication;
+import com.alibaba.example.chatmemory.benchmark.mem0.MemZeroLatency;
+import com.alibaba.example.chatmemory.benchmark.mem0.MemZeroStandInServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 聊天接口的端到端吞吐测试
+ *
+ * 启动 Mem0 替身服务和聊天应用（ChatModel 替换为 {@link FakeChatModel}），以固定并发反复调用
+ * /advisor/memory/mem0/call，预热后统计端到端延迟和 advisor 各阶段（search、render、persist_user、persist_assistant）
+ * 的耗时分布。大模型延迟是固定的配置值，端到端延迟中扣除它之后就是记忆相关的开销。
+ * 失败和超时的请求单独统计，不计入端到端延迟；search、render、persist_assistant 阶段没有样本时说明请求没有经过
+ * advisor，测试失败。persist_user 只在 SYNC、ASYNC 写入模式下有样本，默认的 WITH_RESPONSE 模式下为 0。
+ *
+ * 参数使用 --harness.xxx=value 的形式，其余参数原样传给 Spring 应用（如 --mem0.client.enable-cache=false）：
+ * concurrency、warmup-seconds、duration-seconds、users、model-latency-ms、
+ * search-median-ms、search-p99-ms、write-latency-ms、error-rate、search-results
+ */
+public class ChatThroughputHarness {
+
+    private static final String PREFIX = "--harness.";
+
+    // 每个请求都必须经过的 advisor 阶段
+    private static final List<String> REQUIRED_PHASES = List.of("search", "render", "persist_assistant");
+
+    private static final String[] MESSAGES = {
+            "我下周要去杭州出差，帮我推荐几家西湖边的餐厅",
+            "我喜欢周末去爬山，有什么推荐的路线吗",
+            "I'm allergic to peanuts, keep that in mind when suggesting food",
+            "帮我回忆一下我上次说的旅行计划",
+            "What did I tell you about my job?"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(PREFIX) && arg.contains("=")) {
+                options.put(arg.substring(PREFIX.length(), arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "30"));
+        int users = Integer.parseInt(options.getOrDefault("users", "200"));
+        long modelLatencyMs = Long.parseLong(options.getOrDefault("model-latency-ms", "200"));
+        long searchMedianMs = Long.parseLong(options.getOrDefault("search-median-ms", "10"));
+        long searchP99Ms = Long.parseLong(options.getOrDefault("search-p99-ms", "80"));
+        long writeLatencyMs = Long.parseLong(options.getOrDefault("write-latency-ms", "50"));
+        double errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0"));
+        int searchResults = Integer.parseInt(options.getOrDefault("search-results", "20"));
+
+        try (MemZeroStandInServer mem0 = MemZeroStandInServer.builder()
+                .errorRate(errorRate)
+                .profile(MemZeroStandInServer.SEARCH, MemZeroStandInServer.Profile.HEALTHY
+                        .withLatency(MemZeroLatency.logNormal(Duration.ofMillis(searchMedianMs), Duration.ofMillis(searchP99Ms)))
+                        .withErrorRate(errorRate))
+                .profile(MemZeroStandInServer.MEMORIES, MemZeroStandInServer.Profile.HEALTHY
+                        .withLatency(MemZeroLatency.fixed(Duration.ofMillis(writeLatencyMs)))
+                        .withErrorRate(errorRate))
+                .searchResults(searchResults)
+                .build()
+                .start()) {
+            applicationArgs.add("--server.port=0");
+            applicationArgs.add("--mem0.client.base-url=" + mem0.baseUrl());
+            applicationArgs.add("--spring.ai.dashscope.api-key=benchmark");
+            applicationArgs.add("--harness.model-latency-ms=" + modelLatencyMs);
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ChatMemoryApplication.class, HarnessConfiguration.class)
+                    .run(applicationArgs.toArray(String[]::new))) {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/advisor/memory/mem0/call";
+                PhaseRecordingMeterRegistry registry = context.getBean(PhaseRecordingMeterRegistry.class);
+                run(baseUrl, registry, concurrency, warmupSeconds, durationSeconds, users, modelLatencyMs, System.out);
+            }
+        }
+    }
+
+    private static void run(String baseUrl, PhaseRecordingMeterRegistry registry, int concurrency, int warmupSeconds,
+                            int durationSeconds, int users, long modelLatencyMs, PrintStream out) throws InterruptedException {
+        ExecutorService httpExecutor = Executors.newFixedThreadPool(Math.max(4, concurrency / 4));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+        Recorder endToEnd = new Recorder(3);
+        Recorder failed = new Recorder(3);
+        AtomicLong requests = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            int offset = worker;
+            workers.execute(() -> {
+                long sequence = offset;
+                while (System.nanoTime() < end) {
+                    String userId = "bench_user_" + (sequence % users);
+                    String message = MESSAGES[(int) (sequence % MESSAGES.length)];
+                    sequence += concurrency;
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl
+                                    + "?message=" + URLEncoder.encode(message, StandardCharsets.UTF_8)
+                                    + "&user_id=" + userId))
+                            .timeout(Duration.ofSeconds(60))
+                            .GET()
+                            .build();
+                    long start = System.nanoTime();
+                    boolean succeeded;
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        succeeded = response.statusCode() == 200;
+                    } catch (Exception e) {
+                        succeeded = false;
+                    }
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                    if (succeeded) {
+                        endToEnd.recordValue(micros);
+                    } else {
+                        // 快速失败和超时会拉低或拉高延迟分布，单独统计
+                        failed.recordValue(micros);
+                        failures.incrementAndGet();
+                    }
+                    requests.incrementAndGet();
+                }
+            });
+        }
+
+        out.printf("Warming up for %ds with %d concurrent clients...%n", warmupSeconds, concurrency);
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, warmupEnd - System.nanoTime()));
+        // 丢弃预热期间的样本
+        endToEnd.reset();
+        failed.reset();
+        registry.intervalHistograms();
+        long measuredFrom = requests.get();
+        long failedFrom = failures.get();
+
+        workers.shutdown();
+        workers.awaitTermination(durationSeconds + 120L, TimeUnit.SECONDS);
+        httpExecutor.shutdown();
+        long measured = requests.get() - measuredFrom;
+
+        out.printf("%nRequests: %d in %ds, %.1f req/s, %d failed, model latency %dms%n",
+                measured, durationSeconds, measured / (double) durationSeconds, failures.get() - failedFrom, modelLatencyMs);
+        out.printf("%-20s %10s %10s %10s %10s %10s%n", "latency (ms)", "count", "p50", "p99", "p99.9", "max");
+        print(out, "end-to-end", endToEnd.getIntervalHistogram());
+        print(out, "failed", failed.getIntervalHistogram());
+        Map<String, Histogram> phases = registry.intervalHistograms();
+        phases.forEach((phase, histogram) -> print(out, "advisor " + phase, histogram));
+
+        List<String> missing = REQUIRED_PHASES.stream()
+                .filter(phase -> !phases.containsKey(phase) || phases.get(phase).getTotalCount() == 0)
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("No samples for advisor phases " + missing
+                    + ", requests did not go through the Mem0 advisor");
+        }
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram) {
+        out.printf("%-20s %10d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * 替换应用中的 ChatModel 和 MeterRegistry
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class HarnessConfiguration {
+
+        @Bean
+        @Primary
+        ChatModel fakeChatModel(Environment environment) {
+            long latencyMs = environment.getProperty("harness.model-latency-ms", Long.class, 200L);
+            return new FakeChatModel(MemZeroLatency.fixed(Duration.ofMillis(latencyMs)));
+        }
+
+        @Bean
+        @Primary
+        PhaseRecordingMeterRegistry phaseRecordingMeterRegistry() {
+            return new PhaseRecordingMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.alibaba.example.chatmemory.benchmark.e2e;
+
+import com.alibaba.example.chatmemory.benchmark.mem0.MemZeroLatency;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 确定性的 ChatModel，不调用大模型
+ *
+ * 回答只由用户消息决定，按配置的延迟分布阻塞调用线程（与同步调用真实模型时一样占用请求线程）；
+ * 流式调用把回答拆成固定大小的分片，延迟平均分配到各分片之间。
+ */
+public class FakeChatModel implements ChatModel {
+
+    private static final String[] ANSWERS = {
+            "好的，我记住了。",
+            "根据你之前提到的偏好，我推荐西湖边的楼外楼。",
+            "Sure, I will keep that in mind for your next trip.",
+            "你之前说过喜欢周末去爬山，这周天气不错，可以去九溪走走。"
+    };
+
+    private static final int CHUNK_SIZE = 8;
+
+    private final MemZeroLatency latency;
+
+    public FakeChatModel(MemZeroLatency latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Duration delay = latency.next();
+        if (!delay.isZero()) {
+            LockSupport.parkNanos(delay.toNanos());
+        }
+        return response(answer(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String answer = answer(prompt);
+        int chunks = (answer.length() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Duration interval = latency.next().dividedBy(Math.max(chunks, 1));
+        return Flux.range(0, chunks)
+                .delayElements(interval)
+                .map(i -> response(answer.substring(i * CHUNK_SIZE, Math.min(answer.length(), (i + 1) * CHUNK_SIZE))));
+    }
+
+    private static String answer(Prompt prompt) {
+        String text = prompt.getUserMessage() != null ? prompt.getUserMessage().getText() : "";
+        return ANSWERS[Math.floorMod(text.hashCode(), ANSWERS.length)];
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
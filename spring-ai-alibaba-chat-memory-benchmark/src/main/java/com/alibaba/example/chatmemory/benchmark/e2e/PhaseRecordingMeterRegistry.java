@@ -0,0 +1,51 @@
+package com.alibaba.example.chatmemory.benchmark.e2e;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.cumulative.CumulativeTimer;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在 SimpleMeterRegistry 的基础上，把 advisor 各阶段计时器（mem0.advisor.phase）的每个样本
+ * 同时记录到按阶段区分的 HdrHistogram 中，单位微秒
+ */
+public class PhaseRecordingMeterRegistry extends SimpleMeterRegistry {
+
+    static final String PHASE_TIMER = "mem0.advisor.phase";
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @Override
+    protected Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig, PauseDetector pauseDetector) {
+        String phase = id.getTag("phase");
+        if (!PHASE_TIMER.equals(id.getName()) || phase == null) {
+            return super.newTimer(id, distributionStatisticConfig, pauseDetector);
+        }
+        Recorder recorder = recorders.computeIfAbsent(phase, key -> new Recorder(3));
+        return new CumulativeTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), false) {
+            @Override
+            protected void recordNonNegative(long amount, TimeUnit unit) {
+                super.recordNonNegative(amount, unit);
+                recorder.recordValue(unit.toMicros(amount));
+            }
+        };
+    }
+
+    /**
+     * 返回上次调用以来各阶段的样本，并开始新的统计区间
+     */
+    public Map<String, Histogram> intervalHistograms() {
+        Map<String, Histogram> histograms = new TreeMap<>();
+        recorders.forEach((phase, recorder) -> histograms.put(phase, recorder.getIntervalHistogram()));
+        return histograms;
+    }
+}
@@ -0,0 +1,40 @@
+package com.alibaba.example.chatmemory.benchmark.mem0;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 注入的服务端延迟分布
+ */
+@FunctionalInterface
+public interface MemZeroLatency {
+
+    // 标准正态分布的 99 分位
+    double Z_99 = 2.3263;
+
+    MemZeroLatency NONE = () -> Duration.ZERO;
+
+    /**
+     * 下一次请求的延迟
+     */
+    Duration next();
+
+    static MemZeroLatency fixed(Duration latency) {
+        return () -> latency;
+    }
+
+    static MemZeroLatency uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long maxNanos = max.toNanos();
+        return () -> Duration.ofNanos(minNanos + (long) (ThreadLocalRandom.current().nextDouble() * (maxNanos - minNanos)));
+    }
+
+    /**
+     * 对数正态分布，按中位数和 99 分位确定参数，接近真实服务的长尾延迟
+     */
+    static MemZeroLatency logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        double sigma = (Math.log(p99.toNanos()) - mu) / Z_99;
+        return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,519 @@
+package com.alibaba.example.chatmemory.benchmark.mem0;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 进程内的 Mem0 替身服务
+ *
+ * 实现 server/main.py 的接口（/configure、/memories、/search、/memories/{id}/history、/reset 等），
+ * 请求和响应的 JSON 结构与之相同，记忆保存在内存中：每条消息直接作为一条记忆，检索按词重叠打分，不调用 LLM 和向量库。
+ * 可以按接口注入延迟分布和错误率，并固定检索返回的结果数（不足时补充生成的记忆），
+ * 用于在单机上压测 MemZeroServiceClient 和 MemZeroChatMemoryAdvisor 的吞吐和尾延迟。
+ * 延迟通过定时器实现，不占用 IO 线程。
+ */
+public class MemZeroStandInServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroStandInServer.class);
+
+    public static final String CONFIGURE = "configure";
+    public static final String MEMORIES = "memories";
+    public static final String SEARCH = "search";
+    public static final String HISTORY = "history";
+    public static final String RESET = "reset";
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int IDEMPOTENCY_CACHE_SIZE = 10000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int port;
+    private final Profile defaultProfile;
+    private final Map<String, Profile> profiles;
+    private final int searchResults;
+    private final int relations;
+
+    private final Map<String, StoredMemory> memories = new ConcurrentHashMap<>();
+    private final Map<String, List<Map<String, Object>>> histories = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> idempotentResponses;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> injectedErrors = new ConcurrentHashMap<>();
+
+    private DisposableServer server;
+
+    protected MemZeroStandInServer(int port, Profile defaultProfile, Map<String, Profile> profiles, int searchResults, int relations) {
+        this.port = port;
+        this.defaultProfile = defaultProfile;
+        this.profiles = Map.copyOf(profiles);
+        this.searchResults = searchResults;
+        this.relations = relations;
+        this.idempotentResponses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+                return size() > IDEMPOTENCY_CACHE_SIZE;
+            }
+        });
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 启动服务，port 为 0 时使用随机端口
+     */
+    public MemZeroStandInServer start() {
+        this.server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes
+                        .post("/configure", handle(CONFIGURE, (request, body) ->
+                                Mono.just(Reply.ok(Map.of("message", "Configuration set successfully")))))
+                        .post("/memories", handle(MEMORIES, this::addMemory))
+                        .get("/memories/{memoryId}/history", handle(HISTORY, (request, body) ->
+                                Mono.just(Reply.ok(histories.getOrDefault(request.param("memoryId"), List.of())))))
+                        .get("/memories/{memoryId}", handle(MEMORIES, (request, body) -> {
+                            // 与 main.py 一致：未知 id 返回 200 和 null
+                            StoredMemory memory = memories.get(request.param("memoryId"));
+                            return Mono.just(Reply.ok(memory != null ? memory.toResult(null) : null));
+                        }))
+                        .get("/memories", handle(MEMORIES, (request, body) -> getAllMemories(request)))
+                        .put("/memories/{memoryId}", handle(MEMORIES, this::updateMemory))
+                        .delete("/memories/{memoryId}", handle(MEMORIES, (request, body) -> {
+                            deleteMemory(request.param("memoryId"));
+                            return Mono.just(Reply.ok(Map.of("message", "Memory deleted successfully")));
+                        }))
+                        .delete("/memories", handle(MEMORIES, (request, body) -> deleteAllMemories(request)))
+                        .post("/search", handle(SEARCH, (request, body) -> search(body)))
+                        .post("/reset", handle(RESET, (request, body) -> {
+                            memories.clear();
+                            histories.clear();
+                            idempotentResponses.clear();
+                            return Mono.just(Reply.ok(Map.of("message", "All memories reset")));
+                        })))
+                .bindNow();
+        logger.info("Mem0 stand-in server started at {}", baseUrl());
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    public long requestCount(String endpoint) {
+        AtomicLong count = requestCounts.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public long injectedErrors(String endpoint) {
+        AtomicLong count = injectedErrors.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public int memoryCount() {
+        return memories.size();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * 读取请求体，按接口的配置注入延迟和错误后调用处理逻辑
+     */
+    private BiFunction<HttpServerRequest, HttpServerResponse, Publisher<Void>> handle(
+            String endpoint, BiFunction<HttpServerRequest, JsonNode, Mono<Reply>> handler) {
+        Profile profile = profiles.getOrDefault(endpoint, defaultProfile);
+        return (request, response) -> {
+            requestCounts.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+            Mono<Reply> reply = request.receive().aggregate().asString()
+                    .map(this::readTree)
+                    .defaultIfEmpty(objectMapper.nullNode())
+                    .flatMap(body -> {
+                        if (profile.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < profile.errorRate()) {
+                            injectedErrors.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+                            return Mono.just(new Reply(profile.errorStatus(), Map.of("detail", "Injected failure")));
+                        }
+                        return handler.apply(request, body);
+                    })
+                    .onErrorResume(IllegalArgumentException.class,
+                            error -> Mono.just(new Reply(HttpResponseStatus.BAD_REQUEST.code(), Map.of("detail", error.getMessage()))));
+            Duration latency = profile.latency().next();
+            if (!latency.isZero()) {
+                reply = reply.delayElement(latency);
+            }
+            return reply.flatMap(result -> response.status(result.status())
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .sendString(Mono.just(writeValue(result.body())))
+                    .then());
+        };
+    }
+
+    private Mono<Reply> addMemory(HttpServerRequest request, JsonNode body) {
+        Scope scope = Scope.of(body::path);
+        if (scope.isEmpty()) {
+            throw new IllegalArgumentException("At least one identifier (user_id, agent_id, run_id) is required.");
+        }
+        String idempotencyKey = request.requestHeaders().get(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null) {
+            return Mono.just(Reply.ok(storeMessages(scope, body)));
+        }
+        // 在 map 的锁内完成检查、新增和保存，同一个幂等键的并发请求只新增一次
+        return Mono.just(Reply.ok(idempotentResponses.computeIfAbsent(idempotencyKey, key -> storeMessages(scope, body))));
+    }
+
+    private Map<String, Object> storeMessages(Scope scope, JsonNode body) {
+        Map<String, Object> metadata = body.hasNonNull("metadata")
+                ? objectMapper.convertValue(body.get("metadata"), objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class))
+                : Map.of();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (JsonNode message : body.path("messages")) {
+            String text = message.path("content").asText();
+            if (text.isBlank()) {
+                continue;
+            }
+            String now = now();
+            StoredMemory memory = new StoredMemory(UUID.randomUUID().toString(), text, metadata, scope,
+                    message.path("role").asText(null), now, null, sequence.incrementAndGet());
+            memories.put(memory.id(), memory);
+            recordHistory(memory.id(), null, text, "ADD", now);
+            results.add(Map.of("id", memory.id(), "memory", text, "event", "ADD"));
+        }
+        return Map.of("results", results,
+                "relations", Map.of("deleted_entities", List.of(), "added_entities", List.of()));
+    }
+
+    private Mono<Reply> getAllMemories(HttpServerRequest request) {
+        Map<String, List<String>> query = new QueryStringDecoder(request.uri()).parameters();
+        Scope scope = Scope.of(name -> query.containsKey(name) ? objectMapper.getNodeFactory().textNode(query.get(name).get(0))
+                : objectMapper.missingNode());
+        if (scope.isEmpty()) {
+            throw new IllegalArgumentException("At least one identifier is required.");
+        }
+        List<StoredMemory> scoped = memories.values().stream()
+                .filter(memory -> scope.matches(memory.scope()))
+                .sorted(Comparator.comparingLong(StoredMemory::sequence))
+                .toList();
+        if (!query.containsKey("limit") && !query.containsKey("cursor")) {
+            return Mono.just(Reply.ok(Map.of("results", scoped.stream().map(memory -> memory.toResult(null)).toList(),
+                    "relations", relations(scope))));
+        }
+        // 与 main.py 相同的游标分页：按写入顺序排序，游标是上一页最后一条的序号，relations 只随第一页返回
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit").get(0)) : 100;
+        String cursor = query.containsKey("cursor") ? query.get("cursor").get(0) : null;
+        long after = cursor != null ? Long.parseLong(cursor) : Long.MIN_VALUE;
+        List<StoredMemory> page = scoped.stream()
+                .filter(memory -> memory.sequence() > after)
+                .limit(limit)
+                .toList();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("results", page.stream().map(memory -> memory.toResult(null)).toList());
+        if (cursor == null) {
+            response.put("relations", relations(scope));
+        }
+        response.put("next_cursor", page.size() == limit ? Long.toString(page.get(page.size() - 1).sequence()) : null);
+        return Mono.just(Reply.ok(response));
+    }
+
+    private Mono<Reply> search(JsonNode body) {
+        Scope scope = Scope.of(body::path);
+        String query = body.path("query").asText("");
+        int limit = body.path("limit").asInt(100);
+        Set<String> queryTerms = terms(query);
+        List<Map<String, Object>> results = new ArrayList<>();
+        memories.values().stream()
+                .filter(memory -> scope.matches(memory.scope()))
+                .map(memory -> Map.entry(memory, score(queryTerms, memory.memory())))
+                .sorted(Map.Entry.<StoredMemory, Double>comparingByValue().reversed())
+                .limit(searchResults >= 0 ? Math.min(limit, searchResults) : limit)
+                .forEach(entry -> results.add(entry.getKey().toResult(entry.getValue())));
+        // 固定结果数时，用生成的记忆补足
+        int target = searchResults >= 0 ? Math.min(limit, searchResults) : results.size();
+        for (int i = results.size(); i < target; i++) {
+            results.add(synthetic(scope, i).toResult(0.5 * (target - i) / target));
+        }
+        return Mono.just(Reply.ok(Map.of("results", results, "relations", relations(scope))));
+    }
+
+    private Mono<Reply> updateMemory(HttpServerRequest request, JsonNode body) {
+        String memoryId = request.param("memoryId");
+        StoredMemory memory = memories.get(memoryId);
+        if (memory == null) {
+            // 与 main.py 一致：mem0 的 update 对未知 id 抛出异常，服务端返回 500
+            return Mono.just(Reply.error("Error getting memory with ID " + memoryId + ". Please provide a valid 'memory_id'"));
+        }
+        String text = body.hasNonNull("text") ? body.get("text").asText()
+                : body.path("data").isTextual() ? body.get("data").asText() : body.toString();
+        String now = now();
+        memories.put(memoryId, new StoredMemory(memoryId, text, memory.metadata(), memory.scope(), memory.role(),
+                memory.createdAt(), now, memory.sequence()));
+        recordHistory(memoryId, memory.memory(), text, "UPDATE", now);
+        return Mono.just(Reply.ok(Map.of("message", "Memory updated successfully!")));
+    }
+
+    private Mono<Reply> deleteAllMemories(HttpServerRequest request) {
+        Map<String, List<String>> query = new QueryStringDecoder(request.uri()).parameters();
+        Scope scope = Scope.of(name -> query.containsKey(name) ? objectMapper.getNodeFactory().textNode(query.get(name).get(0))
+                : objectMapper.missingNode());
+        if (scope.isEmpty()) {
+            throw new IllegalArgumentException("At least one identifier is required.");
+        }
+        memories.values().stream()
+                .filter(memory -> scope.matches(memory.scope()))
+                .map(StoredMemory::id)
+                .toList()
+                .forEach(this::deleteMemory);
+        return Mono.just(Reply.ok(Map.of("message", "All relevant memories deleted")));
+    }
+
+    private void deleteMemory(String memoryId) {
+        StoredMemory memory = memories.remove(memoryId);
+        if (memory != null) {
+            recordHistory(memoryId, memory.memory(), null, "DELETE", now());
+        }
+    }
+
+    private void recordHistory(String memoryId, String oldMemory, String newMemory, String event, String timestamp) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("id", UUID.randomUUID().toString());
+        entry.put("memory_id", memoryId);
+        entry.put("old_memory", oldMemory);
+        entry.put("new_memory", newMemory);
+        entry.put("event", event);
+        entry.put("created_at", timestamp);
+        entry.put("updated_at", null);
+        entry.put("is_deleted", "DELETE".equals(event) ? 1 : 0);
+        histories.computeIfAbsent(memoryId, key -> Collections.synchronizedList(new ArrayList<>())).add(entry);
+    }
+
+    private List<Map<String, Object>> relations(Scope scope) {
+        List<Map<String, Object>> result = new ArrayList<>(relations);
+        String source = scope.userId() != null ? scope.userId() : "user";
+        for (int i = 0; i < relations; i++) {
+            result.add(Map.of("source", source, "relationship", i % 2 == 0 ? "likes" : "lives_in",
+                    "destination", "entity_" + i, "target", "entity_" + i));
+        }
+        return result;
+    }
+
+    private static StoredMemory synthetic(Scope scope, int index) {
+        return new StoredMemory("synthetic-" + index, "Synthetic memory #" + index + " generated by the Mem0 stand-in",
+                Map.of(), scope, "user", "2025-06-24T14:28:00.000000+08:00", null, -index);
+    }
+
+    private static double score(Set<String> queryTerms, String text) {
+        if (queryTerms.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> terms = terms(text);
+        long common = queryTerms.stream().filter(terms::contains).count();
+        return terms.isEmpty() ? 0.0 : common / Math.sqrt((double) queryTerms.size() * terms.size());
+    }
+
+    // 小写单词和单个汉字
+    private static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.codePoints().anyMatch(codePoint -> Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN)) {
+                word.codePoints().forEach(codePoint -> terms.add(new String(Character.toChars(codePoint))));
+            } else {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    private static String now() {
+        return OffsetDateTime.now(ZoneOffset.UTC).toString();
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return body.isBlank() ? objectMapper.nullNode() : objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON body: " + e.getOriginalMessage());
+        }
+    }
+
+    private String writeValue(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write response", e);
+        }
+    }
+
+    private record Reply(int status, Object body) {
+
+        static Reply ok(Object body) {
+            return new Reply(HttpResponseStatus.OK.code(), body);
+        }
+
+        static Reply error(String detail) {
+            return new Reply(HttpResponseStatus.INTERNAL_SERVER_ERROR.code(), Map.of("detail", detail));
+        }
+    }
+
+    private record Scope(String userId, String agentId, String runId) {
+
+        static Scope of(Function<String, JsonNode> fields) {
+            return new Scope(fields.apply("user_id").asText(null), fields.apply("agent_id").asText(null),
+                    fields.apply("run_id").asText(null));
+        }
+
+        boolean isEmpty() {
+            return userId == null && agentId == null && runId == null;
+        }
+
+        boolean matches(Scope memory) {
+            return (userId == null || userId.equals(memory.userId()))
+                    && (agentId == null || agentId.equals(memory.agentId()))
+                    && (runId == null || runId.equals(memory.runId()));
+        }
+    }
+
+    private record StoredMemory(String id, String memory, Map<String, Object> metadata, Scope scope, String role,
+                                String createdAt, String updatedAt, long sequence) {
+
+        Map<String, Object> toResult(Double score) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", id);
+            result.put("memory", memory);
+            result.put("hash", Integer.toHexString(memory.hashCode()));
+            result.put("metadata", metadata.isEmpty() ? null : metadata);
+            if (score != null) {
+                result.put("score", score);
+            }
+            result.put("created_at", createdAt);
+            result.put("updated_at", updatedAt);
+            result.put("user_id", scope.userId());
+            result.put("agent_id", scope.agentId());
+            result.put("run_id", scope.runId());
+            result.put("role", role);
+            return result;
+        }
+    }
+
+    /**
+     * 单个接口的故障注入配置
+     *
+     * @param latency     响应延迟分布
+     * @param errorRate   返回错误的比例，0 到 1
+     * @param errorStatus 注入错误时的状态码
+     */
+    public record Profile(MemZeroLatency latency, double errorRate, int errorStatus) {
+
+        public static final Profile HEALTHY = new Profile(MemZeroLatency.NONE, 0.0, 500);
+
+        public Profile withLatency(MemZeroLatency latency) {
+            return new Profile(latency, errorRate, errorStatus);
+        }
+
+        public Profile withErrorRate(double errorRate) {
+            return new Profile(latency, errorRate, errorStatus);
+        }
+
+        public Profile withErrorStatus(int errorStatus) {
+            return new Profile(latency, errorRate, errorStatus);
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private Profile defaultProfile = Profile.HEALTHY;
+        private final Map<String, Profile> profiles = new HashMap<>();
+        private int searchResults = -1;
+        private int relations = 0;
+
+        protected Builder() {
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /** 所有接口的默认延迟 */
+        public Builder latency(MemZeroLatency latency) {
+            this.defaultProfile = defaultProfile.withLatency(latency);
+            return this;
+        }
+
+        /** 所有接口的默认错误率 */
+        public Builder errorRate(double errorRate) {
+            this.defaultProfile = defaultProfile.withErrorRate(errorRate);
+            return this;
+        }
+
+        /** 单个接口（{@link #SEARCH}、{@link #MEMORIES} 等）的配置，覆盖默认值 */
+        public Builder profile(String endpoint, Profile profile) {
+            this.profiles.put(endpoint, profile);
+            return this;
+        }
+
+        /** 检索固定返回的结果数（不超过请求的 limit），负数表示只返回已保存的记忆 */
+        public Builder searchResults(int searchResults) {
+            this.searchResults = searchResults;
+            return this;
+        }
+
+        /** 检索和 getAll 返回的图关系数量 */
+        public Builder relations(int relations) {
+            this.relations = relations;
+            return this;
+        }
+
+        public MemZeroStandInServer build() {
+            return new MemZeroStandInServer(port, defaultProfile, profiles, searchResults, relations);
+        }
+    }
+
+    /**
+     * 单独启动替身服务：参数依次为端口、检索延迟中位数（毫秒）、检索延迟 99 分位（毫秒）、错误率、检索结果数
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8888;
+        long median = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        long p99 = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+        int searchResults = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+        MemZeroStandInServer server = MemZeroStandInServer.builder()
+                .port(port)
+                .errorRate(errorRate)
+                .profile(SEARCH, Profile.HEALTHY
+                        .withLatency(MemZeroLatency.logNormal(Duration.ofMillis(median), Duration.ofMillis(p99)))
+                        .withErrorRate(errorRate))
+                .searchResults(searchResults)
+                .build()
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.server.onDispose().block();
+    }
+}
@@ -1,9 +1,13 @@
+import base64
+import json
 import logging
 import os
+import threading
+from collections import OrderedDict
 from typing import Any, Dict, List, Optional
 
 from dotenv import load_dotenv
-from fastapi import FastAPI, HTTPException
+from fastapi import FastAPI, Header, HTTPException, Query
 from fastapi.responses import JSONResponse, RedirectResponse
 from pydantic import BaseModel, Field
 
@@ -78,6 +82,13 @@ DEFAULT_CONFIG = {
 
 MEMORY_INSTANCE = None
 
+# Idempotency-Key -> add response (or IDEMPOTENCY_IN_FLIGHT), so client retries never create duplicate memories. by Morain Miao
+IDEMPOTENCY_CACHE_SIZE = int(os.environ.get("IDEMPOTENCY_CACHE_SIZE", "10000"))
+IDEMPOTENCY_RETRY_AFTER_SECONDS = os.environ.get("IDEMPOTENCY_RETRY_AFTER_SECONDS", "1")
+IDEMPOTENCY_IN_FLIGHT = object()
+IDEMPOTENCY_CACHE: "OrderedDict[str, Any]" = OrderedDict()
+IDEMPOTENCY_LOCK = threading.Lock()
+
 app = FastAPI(
     title="Mem0 REST APIs",
     description="A REST API for managing and searching memories for your AI Agents and Apps.",
@@ -131,6 +142,7 @@ def set_config(config: Dict[str, Any]):
     # 合并 DEFAULT_CONFIG 和 config，config 优先
     merged_config = deep_merge_dicts(DEFAULT_CONFIG, config)
     MEMORY_INSTANCE = Memory.from_config(merged_config)
+    configure_paging(merged_config["vector_store"])
     if 'project' in config:
         MEMORY_INSTANCE.update_project(**config['project'])
     # --- 
@@ -138,18 +150,189 @@ def set_config(config: Dict[str, Any]):
 
 
 @app.post("/memories", summary="Create memories")
-def add_memory(memory_create: MemoryCreate):
+def add_memory(memory_create: MemoryCreate, idempotency_key: Optional[str] = Header(None, alias="Idempotency-Key")):
     """Store new memories."""
     if not any([memory_create.user_id, memory_create.agent_id, memory_create.run_id]):
         raise HTTPException(status_code=400, detail="At least one identifier (user_id, agent_id, run_id) is required.")
 
+    if idempotency_key:
+        with IDEMPOTENCY_LOCK:
+            existing = IDEMPOTENCY_CACHE.get(idempotency_key)
+            if existing is None:
+                IDEMPOTENCY_CACHE[idempotency_key] = IDEMPOTENCY_IN_FLIGHT
+                if len(IDEMPOTENCY_CACHE) > IDEMPOTENCY_CACHE_SIZE:
+                    IDEMPOTENCY_CACHE.popitem(last=False)
+        if existing is IDEMPOTENCY_IN_FLIGHT:
+            # The first request with this key is still running: do not hold a worker thread, let the client retry.
+            raise HTTPException(
+                status_code=409,
+                detail="A request with this Idempotency-Key is in progress.",
+                headers={"Retry-After": IDEMPOTENCY_RETRY_AFTER_SECONDS},
+            )
+        if existing is not None:
+            # A retry of a request that already succeeded: replay its response.
+            return JSONResponse(content=existing)
+
     params = {k: v for k, v in memory_create.model_dump().items() if v is not None and k != "messages"}
     try:
         response = MEMORY_INSTANCE.add(messages=[m.model_dump() for m in memory_create.messages], **params)
-        return JSONResponse(content=response)
     except Exception as e:
         logging.exception("Error in add_memory:")  # This will log the full traceback
+        if idempotency_key:
+            # Failed adds may be retried with the same key.
+            with IDEMPOTENCY_LOCK:
+                if IDEMPOTENCY_CACHE.get(idempotency_key) is IDEMPOTENCY_IN_FLIGHT:
+                    IDEMPOTENCY_CACHE.pop(idempotency_key)
         raise HTTPException(status_code=500, detail=str(e))
+    if idempotency_key:
+        with IDEMPOTENCY_LOCK:
+            # Also when the in-flight marker was evicted meanwhile, so later retries replay instead of adding again.
+            IDEMPOTENCY_CACHE[idempotency_key] = response
+            IDEMPOTENCY_CACHE.move_to_end(idempotency_key)
+            if len(IDEMPOTENCY_CACHE) > IDEMPOTENCY_CACHE_SIZE:
+                IDEMPOTENCY_CACHE.popitem(last=False)
+    return JSONResponse(content=response)
+
+
+# Payload keys Mem0 returns as top-level fields of a memory, the others go into "metadata" (as in Memory.get_all).
+PROMOTED_PAYLOAD_KEYS = ["user_id", "agent_id", "run_id", "actor_id", "role"]
+CORE_PAYLOAD_KEYS = {"data", "hash", "created_at", "updated_at", "id", *PROMOTED_PAYLOAD_KEYS}
+# Connections used only for cursor pagination, never mem0's own connection. None when the store is not pgvector.
+PAGE_POOL = None
+PAGE_TABLE = None
+PAGE_POOL_SIZE = int(os.environ.get("PAGE_POOL_SIZE", "4"))
+# Upper bound of memories read per page when the store has no ordered listing (not pgvector).
+PAGE_SCAN_LIMIT = int(os.environ.get("PAGE_SCAN_LIMIT", "10000"))
+PAGE_CONNECTION_KEYS = ["host", "port", "dbname", "user", "password"]
+
+
+def connect(**kwargs):
+    import psycopg2
+
+    return psycopg2.connect(**kwargs)
+
+
+def connect_pool(minconn, maxconn, **kwargs):
+    from psycopg2.pool import ThreadedConnectionPool
+
+    return ThreadedConnectionPool(minconn, maxconn, **kwargs)
+
+
+def configure_paging(vector_store_config: Dict[str, Any]) -> None:
+    """Open the pagination pool and create its index once, when Mem0 is (re)configured with pgvector."""
+    global PAGE_POOL, PAGE_TABLE
+    if PAGE_POOL is not None:
+        PAGE_POOL.closeall()
+    PAGE_POOL, PAGE_TABLE = None, None
+    if vector_store_config.get("provider") != "pgvector":
+        return
+    config = vector_store_config.get("config", {})
+    table = config.get("collection_name", "mem0")
+    params = {k: config[k] for k in PAGE_CONNECTION_KEYS if k in config}
+    conn = None
+    try:
+        conn = connect(**params)
+        conn.autocommit = True
+        with conn.cursor() as cur:
+            cur.execute(
+                f"CREATE INDEX IF NOT EXISTS {table}_created_at_id_idx "
+                f"ON {table} ((COALESCE(payload->>'created_at', '')), (id::text))"
+            )
+    except Exception:
+        # Paging still works without the index, only slower.
+        logging.exception("Failed to create the pagination index on %s:", table)
+    finally:
+        if conn is not None:
+            conn.close()
+    PAGE_POOL, PAGE_TABLE = connect_pool(1, PAGE_POOL_SIZE, **params), table
+
+
+def encode_cursor(created_at: Optional[str], memory_id: str) -> str:
+    return base64.urlsafe_b64encode(json.dumps([created_at or "", memory_id]).encode()).decode()
+
+
+def decode_cursor(cursor: str):
+    try:
+        created_at, memory_id = json.loads(base64.urlsafe_b64decode(cursor.encode()))
+        return str(created_at), str(memory_id)
+    except Exception:
+        raise HTTPException(status_code=400, detail="Invalid cursor.")
+
+
+def format_memory(memory_id: str, payload: Dict[str, Any]) -> Dict[str, Any]:
+    item = {
+        "id": memory_id,
+        "memory": payload.get("data"),
+        "hash": payload.get("hash"),
+        "created_at": payload.get("created_at"),
+        "updated_at": payload.get("updated_at"),
+    }
+    for key in PROMOTED_PAYLOAD_KEYS:
+        if key in payload:
+            item[key] = payload[key]
+    metadata = {k: v for k, v in payload.items() if k not in CORE_PAYLOAD_KEYS}
+    if metadata:
+        item["metadata"] = metadata
+    return item
+
+
+def page_after(memories: List[Dict[str, Any]], limit: int, cursor: Optional[str]) -> List[Dict[str, Any]]:
+    """The memories after the cursor in (created_at, id) order, at most limit of them."""
+    after = decode_cursor(cursor) if cursor else None
+    ordered = sorted(memories, key=lambda m: (m.get("created_at") or "", m["id"]))
+    return [m for m in ordered if after is None or (m.get("created_at") or "", m["id"]) > after][:limit]
+
+
+def get_memories_page(filters: Dict[str, str], limit: int, cursor: Optional[str]) -> Dict[str, Any]:
+    """One page of a scope ordered by (created_at, id), continuing after the cursor.
+
+    Mem0 has no ordered or offset listing. With pgvector the page is read from the collection table with a keyset
+    condition over a dedicated connection: every page costs one index range scan, and memories added while paging
+    never shift the following pages. Other stores page over Memory.get_all, up to PAGE_SCAN_LIMIT memories.
+    """
+    response: Dict[str, Any]
+    if PAGE_POOL is None:
+        listed = MEMORY_INSTANCE.get_all(**filters, limit=PAGE_SCAN_LIMIT)
+        response = {"results": page_after(listed.get("results", []), limit, cursor)}
+        if not cursor and "relations" in listed:
+            response["relations"] = listed["relations"]
+    else:
+        response = {"results": query_memories_page(filters, limit, cursor)}
+        # Relations are not paged: they come with the first page, like Memory.get_all with the same limit.
+        if not cursor and getattr(MEMORY_INSTANCE, "enable_graph", False):
+            response["relations"] = MEMORY_INSTANCE.graph.get_all(filters, limit)
+    results = response["results"]
+    last = results[-1] if len(results) == limit else None
+    response["next_cursor"] = encode_cursor(last["created_at"], last["id"]) if last else None
+    return response
+
+
+def query_memories_page(filters: Dict[str, str], limit: int, cursor: Optional[str]) -> List[Dict[str, Any]]:
+    conditions = []
+    params: List[Any] = []
+    for key, value in filters.items():
+        conditions.append("payload->>%s = %s")
+        params.extend([key, value])
+    if cursor:
+        created_at, memory_id = decode_cursor(cursor)
+        conditions.append("(COALESCE(payload->>'created_at', ''), id::text) > (%s, %s)")
+        params.extend([created_at, memory_id])
+    sql = (
+        f"SELECT id, payload FROM {PAGE_TABLE} WHERE {' AND '.join(conditions)} "
+        f"ORDER BY COALESCE(payload->>'created_at', ''), id::text LIMIT %s"
+    )
+    pool = PAGE_POOL
+    conn = pool.getconn()
+    try:
+        if not conn.autocommit:
+            # Read-only autocommit sessions: a failed page query never leaves an aborted transaction behind.
+            conn.set_session(readonly=True, autocommit=True)
+        with conn.cursor() as cur:
+            cur.execute(sql, (*params, limit))
+            rows = cur.fetchall()
+    finally:
+        pool.putconn(conn, close=bool(conn.closed))
+    return [format_memory(str(row[0]), row[1]) for row in rows]
 
 
 @app.get("/memories", summary="Get memories")
@@ -157,15 +340,21 @@ def get_all_memories(
     user_id: Optional[str] = None,
     run_id: Optional[str] = None,
     agent_id: Optional[str] = None,
+    limit: Optional[int] = Query(None, ge=1),
+    cursor: Optional[str] = None,
 ):
-    """Retrieve stored memories."""
+    """Retrieve stored memories, optionally one page (limit, cursor from the previous page's next_cursor) at a time."""
     if not any([user_id, run_id, agent_id]):
         raise HTTPException(status_code=400, detail="At least one identifier is required.")
     try:
         params = {
             k: v for k, v in {"user_id": user_id, "run_id": run_id, "agent_id": agent_id}.items() if v is not None
         }
-        return MEMORY_INSTANCE.get_all(**params)
+        if limit is None and cursor is None:
+            return MEMORY_INSTANCE.get_all(**params)
+        return get_memories_page(params, limit or 100, cursor)
+    except HTTPException:
+        raise
     except Exception as e:
         logging.exception("Error in get_all_memories:")
         raise HTTPException(status_code=500, detail=str(e))
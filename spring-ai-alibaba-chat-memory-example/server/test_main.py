@@ -0,0 +1,259 @@
+import sys
+import threading
+import types
+
+# The tests replace MEMORY_INSTANCE, mem0 itself is not needed.
+sys.modules.setdefault("mem0", types.SimpleNamespace(Memory=None))
+
+import pytest  # noqa: E402
+from fastapi.testclient import TestClient  # noqa: E402
+
+import main  # noqa: E402
+
+
+class FakeMemory:
+    """Counts add calls; an add can be held until released, or fail once."""
+
+    def __init__(self):
+        self.adds = 0
+        self.started = threading.Event()
+        self.release = threading.Event()
+        self.release.set()
+        self.failures = 0
+
+    def add(self, messages, **params):
+        self.adds += 1
+        self.started.set()
+        self.release.wait(timeout=10)
+        if self.failures > 0:
+            self.failures -= 1
+            raise RuntimeError("mem0 unavailable")
+        return {"results": [{"id": "m%d" % self.adds, "memory": messages[0]["content"], "event": "ADD"}]}
+
+
+@pytest.fixture
+def memory(monkeypatch):
+    fake = FakeMemory()
+    monkeypatch.setattr(main, "MEMORY_INSTANCE", fake)
+    main.IDEMPOTENCY_CACHE.clear()
+    yield fake
+    main.IDEMPOTENCY_CACHE.clear()
+
+
+def add(key):
+    return TestClient(main.app).post(
+        "/memories",
+        json={"messages": [{"role": "user", "content": "I like hiking"}], "user_id": "u1"},
+        headers={"Idempotency-Key": key},
+    )
+
+
+def test_retry_after_success_replays_the_response(memory):
+    first = add("k1")
+    retry = add("k1")
+
+    assert first.status_code == 200
+    assert retry.status_code == 200
+    assert retry.json() == first.json()
+    assert memory.adds == 1
+
+
+def test_duplicate_while_in_flight_returns_409_immediately(memory):
+    memory.release.clear()
+    responses = {}
+    first = threading.Thread(target=lambda: responses.setdefault("first", add("k1")))
+    first.start()
+    assert memory.started.wait(timeout=10)
+
+    duplicate = add("k1")
+
+    assert duplicate.status_code == 409
+    assert duplicate.headers["Retry-After"] == main.IDEMPOTENCY_RETRY_AFTER_SECONDS
+    memory.release.set()
+    first.join(timeout=10)
+    assert responses["first"].status_code == 200
+    assert add("k1").json() == responses["first"].json()
+    assert memory.adds == 1
+
+
+def test_failed_add_can_be_retried_with_the_same_key(memory):
+    memory.failures = 1
+
+    failed = add("k1")
+    retry = add("k1")
+
+    assert failed.status_code == 500
+    assert retry.status_code == 200
+    assert memory.adds == 2
+
+
+def test_different_keys_are_not_deduplicated(memory):
+    add("k1")
+    add("k2")
+
+    assert memory.adds == 2
+
+
+class FakeCursor:
+    def __init__(self, store):
+        self.store = store
+
+    def __enter__(self):
+        return self
+
+    def __exit__(self, *args):
+        return False
+
+    def execute(self, sql, params=None):
+        self.store.executed.append((sql, params))
+        if self.store.fail:
+            raise RuntimeError("database unavailable")
+
+    def fetchall(self):
+        return self.store.pages.pop(0)
+
+
+class FakeConnection:
+    def __init__(self, store):
+        self.store = store
+        self.autocommit = False
+        self.readonly = False
+        self.closed = 0
+
+    def cursor(self):
+        return FakeCursor(self.store)
+
+    def set_session(self, readonly, autocommit):
+        self.readonly, self.autocommit = readonly, autocommit
+
+    def close(self):
+        self.closed = 1
+
+
+class FakePool:
+    def __init__(self, pages=None, fail=False):
+        self.pages = pages or []
+        self.fail = fail
+        self.executed = []
+        self.conn = FakeConnection(self)
+        self.returned = 0
+
+    def getconn(self):
+        return self.conn
+
+    def putconn(self, conn, close=False):
+        self.returned += 1
+
+    def closeall(self):
+        pass
+
+
+def row(memory_id, created_at):
+    return memory_id, {"data": "memory " + memory_id, "hash": "h", "created_at": created_at, "user_id": "u1", "topic": "t"}
+
+
+@pytest.fixture
+def paged_memory(monkeypatch):
+    fake = types.SimpleNamespace(
+        enable_graph=True,
+        graph=types.SimpleNamespace(get_all=lambda filters, limit: [{"source": "u1", "relationship": "likes", "target": "hiking"}]),
+    )
+    pool = FakePool([
+        [row("m1", "2025-01-01T00:00:00"), row("m2", "2025-01-02T00:00:00")],
+        [row("m3", "2025-01-03T00:00:00")],
+    ])
+    monkeypatch.setattr(main, "MEMORY_INSTANCE", fake)
+    monkeypatch.setattr(main, "PAGE_POOL", pool)
+    monkeypatch.setattr(main, "PAGE_TABLE", "memories")
+    return pool
+
+
+def test_pages_continue_after_the_cursor_of_the_previous_page(paged_memory):
+    client = TestClient(main.app)
+
+    first = client.get("/memories", params={"user_id": "u1", "limit": 2}).json()
+    second = client.get("/memories", params={"user_id": "u1", "limit": 2, "cursor": first["next_cursor"]}).json()
+
+    assert [m["id"] for m in first["results"]] == ["m1", "m2"]
+    assert first["results"][0]["metadata"] == {"topic": "t"}
+    assert first["relations"] == [{"source": "u1", "relationship": "likes", "target": "hiking"}]
+    assert [m["id"] for m in second["results"]] == ["m3"]
+    # relations only come with the first page, a short page is the last one
+    assert "relations" not in second
+    assert second["next_cursor"] is None
+    sql, params = paged_memory.executed[-1]
+    assert "ORDER BY" in sql
+    assert "CREATE INDEX" not in " ".join(sql for sql, _ in paged_memory.executed)
+    assert params == ("user_id", "u1", "2025-01-02T00:00:00", "m2", 2)
+
+
+def test_page_queries_use_read_only_autocommit_sessions(paged_memory):
+    TestClient(main.app).get("/memories", params={"user_id": "u1", "limit": 2})
+
+    assert paged_memory.conn.autocommit
+    assert paged_memory.conn.readonly
+    assert paged_memory.returned == 1
+
+
+def test_failed_page_query_returns_the_connection(paged_memory):
+    paged_memory.fail = True
+
+    response = TestClient(main.app).get("/memories", params={"user_id": "u1", "limit": 2})
+
+    assert response.status_code == 500
+    assert paged_memory.returned == 1
+
+
+def test_invalid_cursor_is_rejected(paged_memory):
+    response = TestClient(main.app).get("/memories", params={"user_id": "u1", "limit": 2, "cursor": "not-a-cursor"})
+
+    assert response.status_code == 400
+
+
+def test_other_stores_page_over_get_all(monkeypatch):
+    calls = []
+
+    def get_all(limit, **filters):
+        calls.append((filters, limit))
+        return {
+            "results": [
+                {"id": "m3", "memory": "c", "created_at": "2025-01-03T00:00:00"},
+                {"id": "m1", "memory": "a", "created_at": "2025-01-01T00:00:00"},
+                {"id": "m2", "memory": "b", "created_at": "2025-01-02T00:00:00"},
+            ],
+            "relations": [],
+        }
+
+    monkeypatch.setattr(main, "MEMORY_INSTANCE", types.SimpleNamespace(get_all=get_all))
+    monkeypatch.setattr(main, "PAGE_POOL", None)
+    client = TestClient(main.app)
+
+    first = client.get("/memories", params={"user_id": "u1", "limit": 2}).json()
+    second = client.get("/memories", params={"user_id": "u1", "limit": 2, "cursor": first["next_cursor"]}).json()
+
+    assert [m["id"] for m in first["results"]] == ["m1", "m2"]
+    assert first["relations"] == []
+    assert [m["id"] for m in second["results"]] == ["m3"]
+    assert second["next_cursor"] is None
+    assert calls[0] == ({"user_id": "u1"}, main.PAGE_SCAN_LIMIT)
+
+
+def test_configure_creates_the_index_once_on_its_own_connection(monkeypatch):
+    store = FakePool()
+    pools = []
+    monkeypatch.setattr(main, "connect", lambda **kwargs: store.conn)
+    monkeypatch.setattr(main, "connect_pool", lambda minconn, maxconn, **kwargs: pools.append(kwargs) or FakePool())
+    monkeypatch.setattr(main, "PAGE_POOL", None)
+
+    main.configure_paging({"provider": "pgvector", "config": {"host": "db", "dbname": "mem0", "collection_name": "memories"}})
+
+    assert [sql for sql, _ in store.executed] == [
+        "CREATE INDEX IF NOT EXISTS memories_created_at_id_idx "
+        "ON memories ((COALESCE(payload->>'created_at', '')), (id::text))"
+    ]
+    assert store.conn.autocommit and store.conn.closed
+    assert pools == [{"host": "db", "dbname": "mem0"}]
+    assert main.PAGE_TABLE == "memories"
+
+    main.configure_paging({"provider": "qdrant", "config": {}})
+    assert main.PAGE_POOL is None
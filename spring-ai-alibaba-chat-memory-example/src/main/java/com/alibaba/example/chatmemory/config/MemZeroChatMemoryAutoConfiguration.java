@@ -1,11 +1,24 @@
 package com.alibaba.example.chatmemory.config;
 
 import com.alibaba.cloud.ai.autoconfigure.memory.ChatMemoryAutoConfiguration;
+import com.alibaba.example.chatmemory.mem0.MemZeroCircuitBreaker;
+import com.alibaba.example.chatmemory.mem0.MemZeroHealthIndicator;
+import com.alibaba.example.chatmemory.mem0.MemZeroMemoryContextPacker;
+import com.alibaba.example.chatmemory.mem0.MemZeroMemoryPrefetcher;
 import com.alibaba.example.chatmemory.mem0.MemZeroMemoryStore;
+import com.alibaba.example.chatmemory.mem0.MemZeroNearCacheVectorStore;
+import com.alibaba.example.chatmemory.mem0.MemZeroSearchCache;
+import com.alibaba.example.chatmemory.mem0.MemZeroServerInitializer;
 import com.alibaba.example.chatmemory.mem0.MemZeroServiceClient;
+import com.alibaba.example.chatmemory.mem0.MemZeroWriteBehindQueue;
+import com.alibaba.example.chatmemory.mem0.ReactiveMemZeroServiceClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -14,6 +27,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.ResourceLoader;
 
+import java.time.Duration;
+
 @AutoConfiguration(
         before = {ChatMemoryAutoConfiguration.class}
 )
@@ -30,20 +45,110 @@ public class MemZeroChatMemoryAutoConfiguration {
 
     @Bean
     @ConditionalOnBean(MemZeroChatMemoryProperties.class)
-    public MemZeroServiceClient elasticsearchRestClient(MemZeroChatMemoryProperties properties, ResourceLoader resourceLoader) {
-        MemZeroServiceClient memZeroServiceClient = new MemZeroServiceClient(properties, resourceLoader);
+    public ReactiveMemZeroServiceClient reactiveMemZeroServiceClient(MemZeroChatMemoryProperties properties, ResourceLoader resourceLoader,
+                                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        MemZeroChatMemoryProperties.Client client = properties.getClient();
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        MemZeroSearchCache cache = client.isEnableCache()
+                ? new MemZeroSearchCache(client.getCacheMaxSize(), Duration.ofSeconds(client.getCacheTtlSeconds()), registry)
+                : null;
+        return new ReactiveMemZeroServiceClient(properties, resourceLoader, cache, MemZeroCircuitBreaker.from(client, registry), registry);
+    }
+
+    @Bean
+    @ConditionalOnBean(ReactiveMemZeroServiceClient.class)
+    public MemZeroServiceClient elasticsearchRestClient(ReactiveMemZeroServiceClient reactiveClient, MemZeroChatMemoryProperties properties) {
+        MemZeroServiceClient memZeroServiceClient = new MemZeroServiceClient(reactiveClient);
         logger.info("Initialized MemZeroService Client.success!");
+        if (properties.getClient().getStartup().isAsyncConfigure()) {
+            // 由 MemZeroServerInitializer 在上下文刷新后异步配置
+            return memZeroServiceClient;
+        }
         // 将client配置项交给Server初始化Mem0实例
         memZeroServiceClient.configure(properties.getServer());
         logger.info("Initialized MemZeroService Server success!.");
         return memZeroServiceClient;
     }
 
+    @Bean
+    @ConditionalOnBean(ReactiveMemZeroServiceClient.class)
+    @ConditionalOnProperty(prefix = "mem0.client.startup", name = "async-configure", havingValue = "true", matchIfMissing = true)
+    public MemZeroServerInitializer memZeroServerInitializer(ReactiveMemZeroServiceClient reactiveClient, MemZeroChatMemoryProperties properties) {
+        return MemZeroServerInitializer.from(reactiveClient, properties);
+    }
+
+    @Bean
+    @ConditionalOnClass(HealthIndicator.class)
+    @ConditionalOnBean(MemZeroServerInitializer.class)
+    public MemZeroHealthIndicator mem0HealthIndicator(MemZeroServerInitializer initializer, ReactiveMemZeroServiceClient reactiveClient) {
+        return new MemZeroHealthIndicator(initializer, reactiveClient);
+    }
+
     @Bean
     @ConditionalOnBean(MemZeroServiceClient.class)
-    public VectorStore memZeroMemoryStore(MemZeroServiceClient client) {
+    @ConditionalOnProperty(prefix = "mem0.client.write-behind", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public MemZeroWriteBehindQueue memZeroWriteBehindQueue(MemZeroServiceClient client, MemZeroChatMemoryProperties properties,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        MemZeroChatMemoryProperties.Client.WriteBehind writeBehind = properties.getClient().getWriteBehind();
+        return new MemZeroWriteBehindQueue(client,
+                writeBehind.getQueueCapacity(),
+                writeBehind.getConcurrency(),
+                writeBehind.getOverflowPolicy(),
+                Duration.ofMillis(writeBehind.getBlockTimeoutMillis()),
+                Duration.ofSeconds(writeBehind.getShutdownTimeoutSeconds()),
+                writeBehind.getSpoolCapacity(),
+                Duration.ofSeconds(writeBehind.getSpoolReplayIntervalSeconds()),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    @ConditionalOnBean(MemZeroServiceClient.class)
+    public VectorStore memZeroMemoryStore(MemZeroServiceClient client, ObjectProvider<MemZeroWriteBehindQueue> writeBehindQueue,
+                                          MemZeroChatMemoryProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
         //TODO 客户端初始化后，需要初始化一系列python中的配置
-        return MemZeroMemoryStore.builder(client).build();
+        MemZeroMemoryStore store = MemZeroMemoryStore.builder(client)
+                .writeBehindQueue(writeBehindQueue.getIfAvailable())
+                .build();
+        MemZeroChatMemoryProperties.Client.NearCache nearCache = properties.getClient().getNearCache();
+        if (!nearCache.isEnabled()) {
+            return store;
+        }
+        return MemZeroNearCacheVectorStore.builder(store)
+                .dimensions(nearCache.getDimensions())
+                .maxQueriesPerScope(nearCache.getMaxQueriesPerScope())
+                .minQuerySimilarity(nearCache.getMinQuerySimilarity())
+                .staleness(Duration.ofSeconds(nearCache.getStalenessSeconds()))
+                .maxMemoryBytes(nearCache.getMaxMemoryMb() * 1024 * 1024)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MemZeroMemoryContextPacker memZeroMemoryContextPacker(MemZeroChatMemoryProperties properties) {
+        MemZeroChatMemoryProperties.Client.Context context = properties.getClient().getContext();
+        return MemZeroMemoryContextPacker.builder()
+                .tokenBudget(context.getTokenBudget())
+                .minScore(context.getMinScore())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnBean(VectorStore.class)
+    @ConditionalOnProperty(prefix = "mem0.client.prefetch", name = "enabled", havingValue = "true")
+    public MemZeroMemoryPrefetcher memZeroMemoryPrefetcher(VectorStore memZeroMemoryStore, MemZeroChatMemoryProperties properties,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        MemZeroChatMemoryProperties.Client.Prefetch prefetch = properties.getClient().getPrefetch();
+        MemZeroMemoryStore store = memZeroMemoryStore instanceof MemZeroNearCacheVectorStore nearCache
+                ? nearCache.getDelegate()
+                : (MemZeroMemoryStore) memZeroMemoryStore;
+        return MemZeroMemoryPrefetcher.builder(store)
+                .topN(prefetch.getTopN())
+                .maxAge(Duration.ofSeconds(prefetch.getMaxAgeSeconds()))
+                .activeWindow(Duration.ofSeconds(prefetch.getActiveWindowSeconds()))
+                .maxScopes(prefetch.getMaxScopes())
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
     }
 
 }
@@ -2,7 +2,9 @@ package com.alibaba.example.chatmemory.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = MemZeroChatMemoryProperties.GRAPH_RAG_PREFIX)
@@ -15,8 +17,612 @@ public class MemZeroChatMemoryProperties {
     public static class Client {
         private String baseUrl = "http://localhost:8888";
         private boolean enableCache = true;
+        // 查询缓存最大条目数
+        private int cacheMaxSize = 1000;
+        // 查询缓存过期时间
+        private int cacheTtlSeconds = 60;
+        // 合并相同的并发查询请求
+        private boolean coalesceRequests = true;
         private int timeoutSeconds = 30;
         private int maxRetryAttempts = 3;
+        // 流式读取全部记忆时每页的条数
+        private int pageSize = 500;
+        private WriteBehind writeBehind = new WriteBehind();
+        private Http http = new Http();
+        private Retry retry = new Retry();
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Logging logging = new Logging();
+        private Prefetch prefetch = new Prefetch();
+        private Context context = new Context();
+        private NearCache nearCache = new NearCache();
+        private Startup startup = new Startup();
+
+        /**
+         * 启动时配置 Mem0 服务的方式
+         */
+        public static class Startup {
+            // 为 true 时在上下文刷新后异步配置，否则在创建客户端时同步配置
+            private boolean asyncConfigure = true;
+            private long minBackoffMillis = 1000;
+            private long maxBackoffMillis = 30000;
+            // 最大尝试次数，小于等于 0 表示一直重试
+            private long maxAttempts = 0;
+            // 配置完成前请求的最长等待时间，超时后按 Mem0 不可用处理
+            private long requestWaitMillis = 1000;
+
+            public boolean isAsyncConfigure() {
+                return asyncConfigure;
+            }
+
+            public void setAsyncConfigure(boolean asyncConfigure) {
+                this.asyncConfigure = asyncConfigure;
+            }
+
+            public long getMinBackoffMillis() {
+                return minBackoffMillis;
+            }
+
+            public void setMinBackoffMillis(long minBackoffMillis) {
+                this.minBackoffMillis = minBackoffMillis;
+            }
+
+            public long getMaxBackoffMillis() {
+                return maxBackoffMillis;
+            }
+
+            public void setMaxBackoffMillis(long maxBackoffMillis) {
+                this.maxBackoffMillis = maxBackoffMillis;
+            }
+
+            public long getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(long maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getRequestWaitMillis() {
+                return requestWaitMillis;
+            }
+
+            public void setRequestWaitMillis(long requestWaitMillis) {
+                this.requestWaitMillis = requestWaitMillis;
+            }
+        }
+
+        /**
+         * 进程内近端缓存的配置，默认关闭
+         */
+        public static class NearCache {
+            private boolean enabled = false;
+            // 查询哈希向量的维度
+            private int dimensions = 256;
+            // 每个作用域缓存的查询数上限
+            private int maxQueriesPerScope = 16;
+            // 新的查询与已缓存查询的词法相似度不低于该值时复用 Mem0 的结果
+            private double minQuerySimilarity = 0.9;
+            // 缓存的结果可以直接回答检索的时长
+            private int stalenessSeconds = 60;
+            // 所有作用域缓存的总大小上限
+            private long maxMemoryMb = 64;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getDimensions() {
+                return dimensions;
+            }
+
+            public void setDimensions(int dimensions) {
+                this.dimensions = dimensions;
+            }
+
+            public int getMaxQueriesPerScope() {
+                return maxQueriesPerScope;
+            }
+
+            public void setMaxQueriesPerScope(int maxQueriesPerScope) {
+                this.maxQueriesPerScope = maxQueriesPerScope;
+            }
+
+            public double getMinQuerySimilarity() {
+                return minQuerySimilarity;
+            }
+
+            public void setMinQuerySimilarity(double minQuerySimilarity) {
+                this.minQuerySimilarity = minQuerySimilarity;
+            }
+
+            public int getStalenessSeconds() {
+                return stalenessSeconds;
+            }
+
+            public void setStalenessSeconds(int stalenessSeconds) {
+                this.stalenessSeconds = stalenessSeconds;
+            }
+
+            public long getMaxMemoryMb() {
+                return maxMemoryMb;
+            }
+
+            public void setMaxMemoryMb(long maxMemoryMb) {
+                this.maxMemoryMb = maxMemoryMb;
+            }
+        }
+
+        /**
+         * Advisor 按作用域预取记忆的配置，默认关闭
+         */
+        public static class Prefetch {
+            private boolean enabled = false;
+            // 每个作用域预取的记忆条数
+            private int topN = 50;
+            // 预取结果的有效期，过期后走实时检索
+            private int maxAgeSeconds = 30;
+            // 作用域最近一次检索后多久内视为活跃
+            private int activeWindowSeconds = 600;
+            // 最多保留的作用域数量
+            private int maxScopes = 10000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getTopN() {
+                return topN;
+            }
+
+            public void setTopN(int topN) {
+                this.topN = topN;
+            }
+
+            public int getMaxAgeSeconds() {
+                return maxAgeSeconds;
+            }
+
+            public void setMaxAgeSeconds(int maxAgeSeconds) {
+                this.maxAgeSeconds = maxAgeSeconds;
+            }
+
+            public int getActiveWindowSeconds() {
+                return activeWindowSeconds;
+            }
+
+            public void setActiveWindowSeconds(int activeWindowSeconds) {
+                this.activeWindowSeconds = activeWindowSeconds;
+            }
+
+            public int getMaxScopes() {
+                return maxScopes;
+            }
+
+            public void setMaxScopes(int maxScopes) {
+                this.maxScopes = maxScopes;
+            }
+        }
+
+        /**
+         * Advisor 检索记忆并打包为 LONG_TERM_MEMORY 的配置
+         */
+        public static class Context {
+            // 记忆上下文的 token 预算
+            private int tokenBudget = 2000;
+            // 低于该分数的记忆不加入上下文
+            private double minScore = 0.0;
+            // 每轮检索的记忆条数，为空时使用 Mem0 的默认值
+            private Integer searchLimit;
+
+            public int getTokenBudget() {
+                return tokenBudget;
+            }
+
+            public void setTokenBudget(int tokenBudget) {
+                this.tokenBudget = tokenBudget;
+            }
+
+            public double getMinScore() {
+                return minScore;
+            }
+
+            public void setMinScore(double minScore) {
+                this.minScore = minScore;
+            }
+
+            public Integer getSearchLimit() {
+                return searchLimit;
+            }
+
+            public void setSearchLimit(Integer searchLimit) {
+                this.searchLimit = searchLimit;
+            }
+        }
+
+        /**
+         * 请求/响应报文日志配置，默认关闭
+         */
+        public static class Logging {
+            private boolean enabled = false;
+            // 单条报文最多输出的字符数
+            private int maxPayloadChars = 2048;
+            // 未单独配置的端点的采样率 0~1
+            private double defaultSampleRate = 0.01;
+            // 按端点配置的采样率，key 为 configure / memories / search / history / reset
+            private Map<String, Double> sampleRates = new HashMap<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxPayloadChars() {
+                return maxPayloadChars;
+            }
+
+            public void setMaxPayloadChars(int maxPayloadChars) {
+                this.maxPayloadChars = maxPayloadChars;
+            }
+
+            public double getDefaultSampleRate() {
+                return defaultSampleRate;
+            }
+
+            public void setDefaultSampleRate(double defaultSampleRate) {
+                this.defaultSampleRate = defaultSampleRate;
+            }
+
+            public Map<String, Double> getSampleRates() {
+                return sampleRates;
+            }
+
+            public void setSampleRates(Map<String, Double> sampleRates) {
+                this.sampleRates = sampleRates;
+            }
+        }
+
+        /**
+         * 熔断器配置
+         */
+        public static class CircuitBreaker {
+            private boolean enabled = true;
+            // 连续失败多少次后打开
+            private int failureThreshold = 5;
+            // 打开后多久进入半开状态
+            private int openDurationSeconds = 30;
+            // 半开状态放行的探测请求数
+            private int halfOpenMaxCalls = 1;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getFailureThreshold() {
+                return failureThreshold;
+            }
+
+            public void setFailureThreshold(int failureThreshold) {
+                this.failureThreshold = failureThreshold;
+            }
+
+            public int getOpenDurationSeconds() {
+                return openDurationSeconds;
+            }
+
+            public void setOpenDurationSeconds(int openDurationSeconds) {
+                this.openDurationSeconds = openDurationSeconds;
+            }
+
+            public int getHalfOpenMaxCalls() {
+                return halfOpenMaxCalls;
+            }
+
+            public void setHalfOpenMaxCalls(int halfOpenMaxCalls) {
+                this.halfOpenMaxCalls = halfOpenMaxCalls;
+            }
+        }
+
+        /**
+         * 重试策略配置，重试次数由 maxRetryAttempts 决定
+         */
+        public static class Retry {
+            // 首次重试的退避时间
+            private long minBackoffMillis = 200;
+            // 退避时间上限
+            private long maxBackoffMillis = 5000;
+            // 抖动比例 0~1
+            private double jitter = 0.5;
+            // 可重试的 HTTP 状态码，409 表示同一幂等键的新增请求仍在处理中
+            private List<Integer> retryableStatuses = new ArrayList<>(List.of(409, 429, 502, 503, 504));
+            // 每个请求为重试预算存入的令牌数，即重试量最多约为请求量的该比例
+            private double budgetRatio = 0.2;
+            // 重试预算令牌上限
+            private int budgetMaxTokens = 20;
+
+            public long getMinBackoffMillis() {
+                return minBackoffMillis;
+            }
+
+            public void setMinBackoffMillis(long minBackoffMillis) {
+                this.minBackoffMillis = minBackoffMillis;
+            }
+
+            public long getMaxBackoffMillis() {
+                return maxBackoffMillis;
+            }
+
+            public void setMaxBackoffMillis(long maxBackoffMillis) {
+                this.maxBackoffMillis = maxBackoffMillis;
+            }
+
+            public double getJitter() {
+                return jitter;
+            }
+
+            public void setJitter(double jitter) {
+                this.jitter = jitter;
+            }
+
+            public List<Integer> getRetryableStatuses() {
+                return retryableStatuses;
+            }
+
+            public void setRetryableStatuses(List<Integer> retryableStatuses) {
+                this.retryableStatuses = retryableStatuses;
+            }
+
+            public double getBudgetRatio() {
+                return budgetRatio;
+            }
+
+            public void setBudgetRatio(double budgetRatio) {
+                this.budgetRatio = budgetRatio;
+            }
+
+            public int getBudgetMaxTokens() {
+                return budgetMaxTokens;
+            }
+
+            public void setBudgetMaxTokens(int budgetMaxTokens) {
+                this.budgetMaxTokens = budgetMaxTokens;
+            }
+        }
+
+        /**
+         * Mem0 WebClient 的连接池与传输层配置
+         */
+        public static class Http {
+            // 连接池最大连接数
+            private int maxConnections = 500;
+            // 等待获取连接的最大排队数
+            private int pendingAcquireMaxCount = 1000;
+            // 等待获取连接的超时时间
+            private long pendingAcquireTimeoutMillis = 10000;
+            // 空闲连接的最长保留时间
+            private int maxIdleTimeSeconds = 30;
+            // 连接的最长存活时间
+            private int maxLifeTimeSeconds = 300;
+            // 后台清理过期连接的间隔
+            private int evictInBackgroundSeconds = 60;
+            private int connectTimeoutMillis = 3000;
+            private int readTimeoutSeconds = 60;
+            private int writeTimeoutSeconds = 10;
+            // 响应 gzip 压缩
+            private boolean compression = true;
+            // 是否使用明文 HTTP/2
+            private boolean h2c = false;
+            // 单个响应在内存中聚合的最大字节数，超过后解码失败（DataBufferLimitException）
+            private int maxInMemorySizeKb = 16384;
+
+            public int getMaxConnections() {
+                return maxConnections;
+            }
+
+            public void setMaxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+            }
+
+            public int getPendingAcquireMaxCount() {
+                return pendingAcquireMaxCount;
+            }
+
+            public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+                this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+            }
+
+            public long getPendingAcquireTimeoutMillis() {
+                return pendingAcquireTimeoutMillis;
+            }
+
+            public void setPendingAcquireTimeoutMillis(long pendingAcquireTimeoutMillis) {
+                this.pendingAcquireTimeoutMillis = pendingAcquireTimeoutMillis;
+            }
+
+            public int getMaxIdleTimeSeconds() {
+                return maxIdleTimeSeconds;
+            }
+
+            public void setMaxIdleTimeSeconds(int maxIdleTimeSeconds) {
+                this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+            }
+
+            public int getMaxLifeTimeSeconds() {
+                return maxLifeTimeSeconds;
+            }
+
+            public void setMaxLifeTimeSeconds(int maxLifeTimeSeconds) {
+                this.maxLifeTimeSeconds = maxLifeTimeSeconds;
+            }
+
+            public int getEvictInBackgroundSeconds() {
+                return evictInBackgroundSeconds;
+            }
+
+            public void setEvictInBackgroundSeconds(int evictInBackgroundSeconds) {
+                this.evictInBackgroundSeconds = evictInBackgroundSeconds;
+            }
+
+            public int getConnectTimeoutMillis() {
+                return connectTimeoutMillis;
+            }
+
+            public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+                this.connectTimeoutMillis = connectTimeoutMillis;
+            }
+
+            public int getReadTimeoutSeconds() {
+                return readTimeoutSeconds;
+            }
+
+            public void setReadTimeoutSeconds(int readTimeoutSeconds) {
+                this.readTimeoutSeconds = readTimeoutSeconds;
+            }
+
+            public int getWriteTimeoutSeconds() {
+                return writeTimeoutSeconds;
+            }
+
+            public void setWriteTimeoutSeconds(int writeTimeoutSeconds) {
+                this.writeTimeoutSeconds = writeTimeoutSeconds;
+            }
+
+            public boolean isCompression() {
+                return compression;
+            }
+
+            public void setCompression(boolean compression) {
+                this.compression = compression;
+            }
+
+            public boolean isH2c() {
+                return h2c;
+            }
+
+            public void setH2c(boolean h2c) {
+                this.h2c = h2c;
+            }
+
+            public int getMaxInMemorySizeKb() {
+                return maxInMemorySizeKb;
+            }
+
+            public void setMaxInMemorySizeKb(int maxInMemorySizeKb) {
+                this.maxInMemorySizeKb = maxInMemorySizeKb;
+            }
+        }
+
+        /**
+         * 异步写入（write-behind）配置
+         */
+        public static class WriteBehind {
+
+            /**
+             * 队列满时的处理策略
+             */
+            public enum OverflowPolicy {
+                /** 阻塞调用线程直到队列有空位，最多等待 blockTimeout，超时后丢弃本次提交的记忆 */
+                BLOCK,
+                /** 丢弃队列中最早的记忆 */
+                DROP_OLDEST,
+                /** 丢弃本次提交的记忆 */
+                DROP_NEWEST
+            }
+
+            private boolean enabled = true;
+            // 队列总容量，平均分给各个写入线程
+            private int queueCapacity = 1000;
+            // 后台写入线程数，同一作用域的记忆固定由一个线程写入
+            private int concurrency = 2;
+            // 队列满时的处理策略
+            private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+            // BLOCK 策略下提交方的最长等待时间
+            private long blockTimeoutMillis = 1000;
+            // 关闭时等待队列写完的最长时间
+            private int shutdownTimeoutSeconds = 30;
+            // Mem0 不可用时暂存失败记忆的容量，超出后丢弃最早的
+            private int spoolCapacity = 10000;
+            // 暂存记忆重新入队的间隔
+            private int spoolReplayIntervalSeconds = 30;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public int getConcurrency() {
+                return concurrency;
+            }
+
+            public void setConcurrency(int concurrency) {
+                this.concurrency = concurrency;
+            }
+
+            public OverflowPolicy getOverflowPolicy() {
+                return overflowPolicy;
+            }
+
+            public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+                this.overflowPolicy = overflowPolicy;
+            }
+
+            public long getBlockTimeoutMillis() {
+                return blockTimeoutMillis;
+            }
+
+            public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+                this.blockTimeoutMillis = blockTimeoutMillis;
+            }
+
+            public int getShutdownTimeoutSeconds() {
+                return shutdownTimeoutSeconds;
+            }
+
+            public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+                this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+            }
+
+            public int getSpoolCapacity() {
+                return spoolCapacity;
+            }
+
+            public void setSpoolCapacity(int spoolCapacity) {
+                this.spoolCapacity = spoolCapacity;
+            }
+
+            public int getSpoolReplayIntervalSeconds() {
+                return spoolReplayIntervalSeconds;
+            }
+
+            public void setSpoolReplayIntervalSeconds(int spoolReplayIntervalSeconds) {
+                this.spoolReplayIntervalSeconds = spoolReplayIntervalSeconds;
+            }
+        }
 
         public String getBaseUrl() {
             return baseUrl;
@@ -34,6 +640,30 @@ public class MemZeroChatMemoryProperties {
             this.enableCache = enableCache;
         }
 
+        public int getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+
+        public void setCacheMaxSize(int cacheMaxSize) {
+            this.cacheMaxSize = cacheMaxSize;
+        }
+
+        public int getCacheTtlSeconds() {
+            return cacheTtlSeconds;
+        }
+
+        public void setCacheTtlSeconds(int cacheTtlSeconds) {
+            this.cacheTtlSeconds = cacheTtlSeconds;
+        }
+
+        public boolean isCoalesceRequests() {
+            return coalesceRequests;
+        }
+
+        public void setCoalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+        }
+
         public int getTimeoutSeconds() {
             return timeoutSeconds;
         }
@@ -49,6 +679,86 @@ public class MemZeroChatMemoryProperties {
         public void setMaxRetryAttempts(int maxRetryAttempts) {
             this.maxRetryAttempts = maxRetryAttempts;
         }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public Retry getRetry() {
+            return retry;
+        }
+
+        public void setRetry(Retry retry) {
+            this.retry = retry;
+        }
+
+        public Startup getStartup() {
+            return startup;
+        }
+
+        public void setStartup(Startup startup) {
+            this.startup = startup;
+        }
+
+        public NearCache getNearCache() {
+            return nearCache;
+        }
+
+        public void setNearCache(NearCache nearCache) {
+            this.nearCache = nearCache;
+        }
+
+        public Prefetch getPrefetch() {
+            return prefetch;
+        }
+
+        public void setPrefetch(Prefetch prefetch) {
+            this.prefetch = prefetch;
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public void setContext(Context context) {
+            this.context = context;
+        }
+
+        public Logging getLogging() {
+            return logging;
+        }
+
+        public void setLogging(Logging logging) {
+            this.logging = logging;
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        public Http getHttp() {
+            return http;
+        }
+
+        public void setHttp(Http http) {
+            this.http = http;
+        }
+
+        public WriteBehind getWriteBehind() {
+            return writeBehind;
+        }
+
+        public void setWriteBehind(WriteBehind writeBehind) {
+            this.writeBehind = writeBehind;
+        }
     }
 
 
@@ -1,21 +1,34 @@
 package com.alibaba.example.chatmemory.controller;
 
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
 import com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor;
+import com.alibaba.example.chatmemory.mem0.MemZeroMemoryContextPacker;
+import com.alibaba.example.chatmemory.mem0.MemZeroMemoryPrefetcher;
+import com.alibaba.example.chatmemory.mem0.MemZeroMemoryStore;
+import com.alibaba.example.chatmemory.mem0.MemZeroNearCacheVectorStore;
 import com.alibaba.example.chatmemory.mem0.MemZeroServerRequest;
 import com.alibaba.example.chatmemory.mem0.MemZeroServerResp;
 import com.alibaba.example.chatmemory.mem0.MemZeroServiceClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor.USER_ID;
 
@@ -34,33 +47,61 @@ public class MemZeroMemoryController {
     private final VectorStore store;
     private final MemZeroServiceClient memZeroServiceClient;
 
-    public MemZeroMemoryController(ChatClient.Builder builder, VectorStore store, MemZeroServiceClient memZeroServiceClient) {
+    public MemZeroMemoryController(ChatClient.Builder builder, VectorStore store, MemZeroServiceClient memZeroServiceClient,
+                                   MeterRegistry meterRegistry, ObservationRegistry observationRegistry,
+                                   ObjectProvider<MemZeroMemoryPrefetcher> prefetcher, MemZeroMemoryContextPacker contextPacker,
+                                   MemZeroChatMemoryProperties properties) {
         this.store = store;
         this.memZeroServiceClient = memZeroServiceClient;
         this.chatClient = builder
                 .defaultAdvisors(
-                        MemZeroChatMemoryAdvisor.builder(store).build()
+                        MemZeroChatMemoryAdvisor.builder(store)
+                                .meterRegistry(meterRegistry)
+                                .observationRegistry(observationRegistry)
+                                .prefetcher(prefetcher.getIfAvailable())
+                                .contextPacker(contextPacker)
+                                .searchLimit(properties.getClient().getContext().getSearchLimit())
+                                .build()
                 )
                 .build();
     }
 
+    /**
+     * 走流式 advisor 链并在完成后拼接回答，等待大模型和 Mem0 期间不占用请求线程
+     */
     @GetMapping("/call")
-    public String call(@RequestParam(value = "message", defaultValue = "你好，我是万能的喵，我爱玩三角洲行动") String message,
-                       @RequestParam(value = "user_id", defaultValue = "miao") String userId
+    public Mono<String> call(@RequestParam(value = "message", defaultValue = "你好，我是万能的喵，我爱玩三角洲行动") String message,
+                             @RequestParam(value = "user_id", defaultValue = "miao") String userId
+    ) {
+        return stream(message, userId).collect(Collectors.joining());
+    }
+
+    /**
+     * 以 text/event-stream 逐段返回回答
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<String> stream(@RequestParam(value = "message", defaultValue = "你好，我是万能的喵，我爱玩三角洲行动") String message,
+                               @RequestParam(value = "user_id", defaultValue = "miao") String userId
     ) {
         return chatClient.prompt(message)
                 .advisors(
                         a -> a.params(Map.of(USER_ID, userId))
                 )
-                .call().content();
+                .stream().content();
     }
 
     @GetMapping("/messages")
-    public List<Document> messages(
+    public Mono<List<Document>> messages(
             @RequestParam(value = "query", defaultValue = "我的爱好是什么？") String query,
             @RequestParam(value = "user_id", defaultValue = "miao") String userId) {
         MemZeroServerRequest.SearchRequest searchRequest = MemZeroServerRequest.SearchRequest.builder().query(query).userId(userId).build();
-        return store.similaritySearch(searchRequest);
+        if (store instanceof MemZeroNearCacheVectorStore nearCache) {
+            return nearCache.similaritySearchReactive(searchRequest);
+        }
+        if (store instanceof MemZeroMemoryStore memZeroMemoryStore) {
+            return memZeroMemoryStore.similaritySearchReactive(searchRequest);
+        }
+        return Mono.fromCallable(() -> store.similaritySearch(searchRequest)).subscribeOn(Schedulers.boundedElastic());
     }
 
     @GetMapping("/test")
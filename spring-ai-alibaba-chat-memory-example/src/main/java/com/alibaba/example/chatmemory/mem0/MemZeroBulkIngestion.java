@@ -0,0 +1,354 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Mem0 批量写入（历史对话回灌）
+ *
+ * 输入按作用域 (user_id, agent_id, run_id) 哈希到 concurrency 个通道：通道之间并行，通道内串行，
+ * 同一作用域的记忆按输入顺序写入；上游按消费速度请求数据（背压），不会把整个输入读进内存。
+ * 每处理 checkpointInterval 条记录保存一次检查点：之前的记录都已处理完的最大序号，以及其中写入失败的序号。
+ * 重新执行同一个 jobId 时先重放这些失败的记录，再从检查点继续；幂等键由 jobId 和序号生成，
+ * 检查点之后重复发送的记忆会被服务端去重。
+ */
+public class MemZeroBulkIngestion {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroBulkIngestion.class);
+
+    private final ReactiveMemZeroServiceClient client;
+    private final Options options;
+
+    public MemZeroBulkIngestion(ReactiveMemZeroServiceClient client, Options options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /**
+     * 写入输入中的全部记忆，按 progressInterval 发出进度，最后一个元素是最终结果。
+     * 输入需要可以重放（同样的顺序），才能从检查点恢复。
+     */
+    public Flux<Progress> ingest(Flux<MemZeroServerRequest.MemoryCreate> memories) {
+        return Flux.defer(() -> {
+            Checkpoint resume = options.checkpointStore().load(options.jobId());
+            if (resume.watermark() > 0 || !resume.failed().isEmpty()) {
+                logger.info("Resuming bulk ingestion {} from checkpoint {}, replaying {} failed records",
+                        options.jobId(), resume.watermark(), resume.failed().size());
+            }
+            Tracker tracker = new Tracker(resume);
+            int lanes = options.concurrency();
+            return memories.index((index, memory) -> new Item(index, memory))
+                    .filter(item -> item.sequence() >= resume.watermark() || resume.failed().contains(item.sequence()))
+                    .groupBy(item -> lane(item.memory(), lanes), options.prefetch())
+                    .flatMap(lane -> lane.concatMap(this::write), lanes)
+                    .<Progress>handle((outcome, sink) -> {
+                        Progress progress = tracker.complete(outcome);
+                        if (progress != null) {
+                            sink.next(progress);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(tracker::finish));
+        });
+    }
+
+    private Mono<Outcome> write(Item item) {
+        MemZeroServerRequest.MemoryCreate memory = item.memory();
+        memory.setIdempotencyKey(options.jobId() + "-" + item.sequence());
+        return client.addMemory(memory)
+                // 熔断打开或服务不可用时等待恢复，而不是把后面的记录全部判为失败
+                .retryWhen(Retry.backoff(options.unavailableRetries(), options.unavailableBackoff())
+                        .maxBackoff(options.maxUnavailableBackoff())
+                        .filter(MemZeroCircuitBreaker::isUnavailable)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .thenReturn(new Outcome(item.sequence(), true))
+                .onErrorResume(error -> !options.stopOnError(), error -> {
+                    logger.warn("Bulk ingestion {} failed to write record {} for user_id={}, agent_id={}, run_id={}: {}",
+                            options.jobId(), item.sequence(), memory.getUserId(), memory.getAgentId(), memory.getRunId(),
+                            error.getMessage());
+                    return Mono.just(new Outcome(item.sequence(), false));
+                });
+    }
+
+    private static int lane(MemZeroServerRequest.MemoryCreate memory, int lanes) {
+        return Math.floorMod(Objects.hash(memory.getUserId(), memory.getAgentId(), memory.getRunId()), lanes);
+    }
+
+    private record Item(long sequence, MemZeroServerRequest.MemoryCreate memory) {
+    }
+
+    private record Outcome(long sequence, boolean success) {
+    }
+
+    /**
+     * 批量写入进度
+     *
+     * @param processed  已处理的记录数（包含从检查点恢复前已完成的）
+     * @param succeeded  本次执行写入成功的记录数
+     * @param failed     本次执行写入失败的记录数
+     * @param checkpoint 已持久化的检查点，之前的记录都已处理完，其中失败的记录另外保存，下次执行时重放
+     * @param elapsed    本次执行耗时
+     */
+    public record Progress(long processed, long succeeded, long failed, long checkpoint, Duration elapsed) {
+
+        /**
+         * 本次执行的写入速率（条/秒）
+         */
+        public double ratePerSecond() {
+            long millis = elapsed.toMillis();
+            return millis == 0 ? 0 : (succeeded + failed) * 1000.0 / millis;
+        }
+    }
+
+    /**
+     * 跟踪完成情况并计算检查点；各通道完成顺序不同，检查点取连续完成的最大序号，失败的序号单独记录
+     */
+    private final class Tracker {
+        private final long startNanos = System.nanoTime();
+        private final TreeSet<Long> completedAhead = new TreeSet<>();
+        // 检查点之前写入失败、需要重放的序号
+        private final TreeSet<Long> failedSequences;
+        private final long resumedFrom;
+        private long watermark;
+        private long lastSaved;
+        private long succeeded;
+        private long failed;
+
+        private Tracker(Checkpoint resume) {
+            this.failedSequences = new TreeSet<>(resume.failed());
+            this.resumedFrom = resume.watermark();
+            this.watermark = resume.watermark();
+            this.lastSaved = resume.watermark();
+        }
+
+        synchronized Progress complete(Outcome outcome) {
+            if (outcome.success()) {
+                succeeded++;
+                failedSequences.remove(outcome.sequence());
+            } else {
+                failed++;
+                failedSequences.add(outcome.sequence());
+            }
+            // 重放的失败记录在检查点之前，不影响检查点的推进
+            if (outcome.sequence() >= resumedFrom) {
+                if (outcome.sequence() == watermark) {
+                    watermark++;
+                    while (completedAhead.remove(watermark)) {
+                        watermark++;
+                    }
+                } else {
+                    completedAhead.add(outcome.sequence());
+                }
+            }
+            if (watermark - lastSaved >= options.checkpointInterval()) {
+                save();
+            }
+            long done = succeeded + failed;
+            return done % options.progressInterval() == 0 ? snapshot() : null;
+        }
+
+        synchronized Progress finish() {
+            save();
+            Progress progress = snapshot();
+            logger.info("Bulk ingestion {} finished: {} succeeded, {} failed, checkpoint {} with {} records to replay, {} records/s",
+                    options.jobId(), progress.succeeded(), progress.failed(), progress.checkpoint(),
+                    failedSequences.size(), String.format("%.1f", progress.ratePerSecond()));
+            return progress;
+        }
+
+        private void save() {
+            // 检查点之后的失败记录下次执行时会重新处理，不需要保存
+            options.checkpointStore().save(options.jobId(), new Checkpoint(watermark, failedSequences.headSet(watermark)));
+            lastSaved = watermark;
+        }
+
+        private Progress snapshot() {
+            return new Progress(watermark + completedAhead.size(), succeeded, failed, lastSaved,
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * 检查点
+     *
+     * @param watermark 之前的记录都已处理完的序号
+     * @param failed    watermark 之前写入失败、需要重放的记录序号
+     */
+    public record Checkpoint(long watermark, Set<Long> failed) {
+
+        public static final Checkpoint EMPTY = new Checkpoint(0, Set.of());
+
+        public Checkpoint {
+            failed = Set.copyOf(failed);
+        }
+    }
+
+    /**
+     * 检查点存储
+     */
+    public interface CheckpointStore {
+
+        /** 不保存检查点，每次都从头开始 */
+        CheckpointStore NONE = new CheckpointStore() {
+            @Override
+            public Checkpoint load(String jobId) {
+                return Checkpoint.EMPTY;
+            }
+
+            @Override
+            public void save(String jobId, Checkpoint checkpoint) {
+            }
+        };
+
+        Checkpoint load(String jobId);
+
+        void save(String jobId, Checkpoint checkpoint);
+    }
+
+    /**
+     * 基于本地文件的检查点存储，每个 jobId 一个文件，先写临时文件再原子替换
+     * 第一行是 watermark，第二行是逗号分隔的失败序号（没有失败时省略）
+     */
+    public static class FileCheckpointStore implements CheckpointStore {
+        private final Path directory;
+
+        public FileCheckpointStore(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public Checkpoint load(String jobId) {
+            Path file = directory.resolve(jobId + ".checkpoint");
+            try {
+                if (!Files.exists(file)) {
+                    return Checkpoint.EMPTY;
+                }
+                List<String> lines = Files.readString(file, StandardCharsets.UTF_8).trim().lines().toList();
+                Set<Long> failed = lines.size() < 2 || lines.get(1).isBlank() ? Set.of()
+                        : Arrays.stream(lines.get(1).split(",")).map(String::trim).map(Long::valueOf).collect(Collectors.toSet());
+                return new Checkpoint(Long.parseLong(lines.get(0).trim()), failed);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load checkpoint " + file, e);
+            }
+        }
+
+        @Override
+        public void save(String jobId, Checkpoint checkpoint) {
+            Path file = directory.resolve(jobId + ".checkpoint");
+            String content = checkpoint.failed().isEmpty() ? Long.toString(checkpoint.watermark())
+                    : checkpoint.watermark() + "\n" + new TreeSet<>(checkpoint.failed()).stream()
+                            .map(String::valueOf).collect(Collectors.joining(","));
+            try {
+                Files.createDirectories(directory);
+                Path tmp = Files.writeString(directory.resolve(jobId + ".checkpoint.tmp"), content, StandardCharsets.UTF_8);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to save checkpoint " + file, e);
+            }
+        }
+    }
+
+    /**
+     * 批量写入配置
+     */
+    public record Options(String jobId, int concurrency, int prefetch, long checkpointInterval, long progressInterval,
+                          CheckpointStore checkpointStore, boolean stopOnError, int unavailableRetries,
+                          Duration unavailableBackoff, Duration maxUnavailableBackoff) {
+
+        public static Builder builder(String jobId) {
+            return new Builder(jobId);
+        }
+
+        public static class Builder {
+            private final String jobId;
+            private int concurrency = 8;
+            private int prefetch = 32;
+            private long checkpointInterval = 1000;
+            private long progressInterval = 1000;
+            private CheckpointStore checkpointStore = CheckpointStore.NONE;
+            private boolean stopOnError = false;
+            private int unavailableRetries = 10;
+            private Duration unavailableBackoff = Duration.ofSeconds(1);
+            private Duration maxUnavailableBackoff = Duration.ofSeconds(30);
+
+            protected Builder(String jobId) {
+                Assert.hasText(jobId, "jobId cannot be empty");
+                this.jobId = jobId;
+            }
+
+            /** 并行通道数，即同时进行中的 Mem0 写请求上限 */
+            public Builder concurrency(int concurrency) {
+                this.concurrency = concurrency;
+                return this;
+            }
+
+            /** 每次向上游请求的记录数 */
+            public Builder prefetch(int prefetch) {
+                this.prefetch = prefetch;
+                return this;
+            }
+
+            public Builder checkpointInterval(long checkpointInterval) {
+                this.checkpointInterval = checkpointInterval;
+                return this;
+            }
+
+            public Builder progressInterval(long progressInterval) {
+                this.progressInterval = progressInterval;
+                return this;
+            }
+
+            public Builder checkpointStore(CheckpointStore checkpointStore) {
+                this.checkpointStore = checkpointStore;
+                return this;
+            }
+
+            /** 为 true 时遇到写入失败即终止，否则记录失败并继续 */
+            public Builder stopOnError(boolean stopOnError) {
+                this.stopOnError = stopOnError;
+                return this;
+            }
+
+            /** Mem0 不可用时单条记录的最大等待重试次数和初始退避时间 */
+            public Builder unavailableRetries(int unavailableRetries, Duration unavailableBackoff) {
+                this.unavailableRetries = unavailableRetries;
+                this.unavailableBackoff = unavailableBackoff;
+                return this;
+            }
+
+            /** Mem0 不可用时退避时间的上限，指数退避增长到该值后不再增长 */
+            public Builder maxUnavailableBackoff(Duration maxUnavailableBackoff) {
+                this.maxUnavailableBackoff = maxUnavailableBackoff;
+                return this;
+            }
+
+            public Options build() {
+                Assert.isTrue(concurrency > 0, "concurrency must be positive");
+                Assert.isTrue(prefetch > 0, "prefetch must be positive");
+                Assert.isTrue(checkpointInterval > 0, "checkpointInterval must be positive");
+                Assert.isTrue(progressInterval > 0, "progressInterval must be positive");
+                Assert.isTrue(maxUnavailableBackoff.compareTo(unavailableBackoff) >= 0,
+                        "maxUnavailableBackoff must not be less than unavailableBackoff");
+                return new Options(jobId, concurrency, prefetch, checkpointInterval, progressInterval, checkpointStore,
+                        stopOnError, unavailableRetries, unavailableBackoff, maxUnavailableBackoff);
+            }
+        }
+    }
+}
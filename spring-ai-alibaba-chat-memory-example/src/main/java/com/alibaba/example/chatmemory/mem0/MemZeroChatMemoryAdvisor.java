@@ -1,12 +1,20 @@
 package com.alibaba.example.chatmemory.mem0;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
 import org.springframework.ai.chat.client.ChatClientRequest;
 import org.springframework.ai.chat.client.ChatClientResponse;
 import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
 import org.springframework.ai.chat.client.advisor.api.BaseAdvisor;
 import org.springframework.ai.chat.client.advisor.api.BaseChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.MessageType;
@@ -17,14 +25,18 @@ import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
- * Memory is retrieved from a Mem0 added into the prompt's system text.
- * user text.
+ * 从 Mem0 检索记忆，作为 LONG_TERM_MEMORY 加入用户提示词；对话结束后把本轮消息写入 Mem0。
  * @author Morain Miao
  * @since 1.0.0
  */
@@ -37,6 +49,31 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
     public static final String RUN_ID = "run_id";
     public static final String FILTERS = "filters";
 
+    // WITH_RESPONSE 模式下暂存在 context 中、待与回答一起写入的用户消息
+    private static final String PENDING_USER_TEXT = "mem0_pending_user_text";
+
+    private static final String PHASE_TIMER = "mem0.advisor.phase";
+
+    private static final String DEGRADED_COUNTER = "mem0.advisor.degraded";
+
+    private static final String BEFORE_OBSERVATION = "mem0.advisor.before";
+
+    private static final String AFTER_OBSERVATION = "mem0.advisor.after";
+
+    /**
+     * 用户消息写入 Mem0 的方式
+     *
+     * 只有 WITH_RESPONSE 把一轮对话合并为一次 add（一次事实抽取）；SYNC 和 ASYNC 中用户消息和回答分两次写入。
+     */
+    public enum UserMessageWriteMode {
+        /** 在 before 中检索完成后同步写入，计入首 token 延迟；每轮两次 add */
+        SYNC,
+        /** 与检索并行、在后台写入，before 只等待检索结果；每轮两次 add */
+        ASYNC,
+        /** 默认，推迟到 after 中与回答合并为同一轮 MemoryCreate 写入；大模型调用失败时用户消息不会写入 */
+        WITH_RESPONSE
+    }
+
     private static final PromptTemplate DEFAULT_SYSTEM_PROMPT_TEMPLATE = new PromptTemplate("""
             ---------------------
             USER_INPUT_MESSAGE:
@@ -86,16 +123,171 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
 
     private final VectorStore vectorStore;
 
+    private final UserMessageWriteMode userMessageWriteMode;
+
+    private final MemZeroMemoryContextPacker contextPacker;
+
+    private final Integer searchLimit;
+
+    private final Timer searchTimer;
+
+    private final Timer renderTimer;
+
+    private final Timer persistUserTimer;
+
+    private final Timer persistAssistantTimer;
+
+    // Mem0 不可用时不带 LONG_TERM_MEMORY 继续回答，而不是让对话请求失败
+    private final boolean degradedMode;
+
+    // 关键路径上记忆检索的超时时间，为空时使用客户端超时
+    private final Duration searchTimeout;
+
+    private final Counter degradedSearchCounter;
+
+    private final Counter degradedPersistCounter;
+
+    private final ObservationRegistry observationRegistry;
+
+    // 可选，用活跃作用域预取的记忆回答检索
+    private final MemZeroMemoryPrefetcher prefetcher;
+
     public MemZeroChatMemoryAdvisor(PromptTemplate systemPromptTemplate, int order, Scheduler scheduler, VectorStore vectorStore) {
+        this(systemPromptTemplate, order, scheduler, vectorStore, UserMessageWriteMode.WITH_RESPONSE,
+                MemZeroMemoryContextPacker.builder().build(), null, Metrics.globalRegistry);
+    }
+
+    public MemZeroChatMemoryAdvisor(PromptTemplate systemPromptTemplate, int order, Scheduler scheduler, VectorStore vectorStore,
+                                    UserMessageWriteMode userMessageWriteMode, MemZeroMemoryContextPacker contextPacker,
+                                    Integer searchLimit, MeterRegistry meterRegistry) {
+        this(systemPromptTemplate, order, scheduler, vectorStore, userMessageWriteMode, contextPacker, searchLimit,
+                true, null, meterRegistry, ObservationRegistry.NOOP, null);
+    }
+
+    public MemZeroChatMemoryAdvisor(PromptTemplate systemPromptTemplate, int order, Scheduler scheduler, VectorStore vectorStore,
+                                    UserMessageWriteMode userMessageWriteMode, MemZeroMemoryContextPacker contextPacker,
+                                    Integer searchLimit, boolean degradedMode, Duration searchTimeout,
+                                    MeterRegistry meterRegistry, ObservationRegistry observationRegistry,
+                                    MemZeroMemoryPrefetcher prefetcher) {
         this.systemPromptTemplate = systemPromptTemplate;
         this.order = order;
         this.scheduler = scheduler;
         this.vectorStore = vectorStore;
+        this.userMessageWriteMode = userMessageWriteMode;
+        this.contextPacker = contextPacker;
+        this.searchLimit = searchLimit;
+        this.searchTimer = phaseTimer(meterRegistry, "search");
+        this.renderTimer = phaseTimer(meterRegistry, "render");
+        this.persistUserTimer = phaseTimer(meterRegistry, "persist_user");
+        this.persistAssistantTimer = phaseTimer(meterRegistry, "persist_assistant");
+        this.degradedMode = degradedMode;
+        this.searchTimeout = searchTimeout;
+        this.degradedSearchCounter = degradedCounter(meterRegistry, "search");
+        this.degradedPersistCounter = degradedCounter(meterRegistry, "persist");
+        this.observationRegistry = observationRegistry;
+        this.prefetcher = prefetcher;
+    }
+
+    private Observation observation(String name) {
+        return Observation.createNotStarted(name, this.observationRegistry)
+                .lowCardinalityKeyValue("write.mode", this.userMessageWriteMode.name().toLowerCase());
+    }
+
+    private static Counter degradedCounter(MeterRegistry meterRegistry, String phase) {
+        return Counter.builder(DEGRADED_COUNTER)
+                .description("Mem0 advisor phases skipped because Mem0 was unavailable")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder(PHASE_TIMER)
+                .description("Latency of each Mem0 advisor phase")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
     public ChatClientRequest before(ChatClientRequest request, AdvisorChain advisorChain) {
-        // 1. Search for similar documents in the vector store.
+        return observation(BEFORE_OBSERVATION).observe(() -> {
+            Turn turn = prepare(request);
+            // 1. 检索相关记忆
+            List<Document> documents = search(turn.searchRequest()).block();
+            return augment(turn, documents);
+        });
+    }
+
+    /**
+     * 流式调用：首个 token 之前以非阻塞方式检索记忆，token 原样转发，结束后在后台把聚合的回答写入 Mem0
+     */
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain streamAdvisorChain) {
+        Mono<ChatClientRequest> augmented = Mono.defer(() -> {
+            Observation observation = observation(BEFORE_OBSERVATION).start();
+            return Mono.fromSupplier(() -> prepare(chatClientRequest))
+                    .flatMap(turn -> search(turn.searchRequest())
+                            .publishOn(getScheduler())
+                            .map(documents -> augment(turn, documents)))
+                    .doOnError(observation::error)
+                    .doFinally(signal -> observation.stop());
+        });
+        return augmented
+                .flatMapMany(streamAdvisorChain::nextStream)
+                .transform(flux -> new ChatClientMessageAggregator().aggregateChatClientResponse(flux,
+                        response -> Mono.fromRunnable(() -> after(response, streamAdvisorChain))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .subscribe(null, error -> logger.warn("Failed to add streamed messages to mem0: {}", error.getMessage(), error))));
+    }
+
+    private Mono<List<Document>> search(SearchRequest searchRequest) {
+        if (this.prefetcher != null && searchRequest instanceof MemZeroServerRequest.SearchRequest mem0Request) {
+            List<Document> prefetched = this.prefetcher.search(mem0Request);
+            if (prefetched != null) {
+                return Mono.just(prefetched);
+            }
+        }
+        Mono<List<Document>> documents;
+        if (this.vectorStore instanceof MemZeroNearCacheVectorStore nearCache) {
+            documents = nearCache.similaritySearchReactive(searchRequest);
+        } else if (this.vectorStore instanceof MemZeroMemoryStore memZeroMemoryStore) {
+            documents = memZeroMemoryStore.similaritySearchReactive(searchRequest);
+        } else {
+            documents = Mono.fromCallable(() -> this.vectorStore.similaritySearch(searchRequest)).subscribeOn(getScheduler());
+        }
+        if (this.searchTimeout != null) {
+            documents = documents.timeout(this.searchTimeout);
+        }
+        Mono<List<Document>> timed = documents;
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return timed.doFinally(signal -> this.searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        }).onErrorResume(error -> this.degradedMode, error -> {
+            this.degradedSearchCounter.increment();
+            logger.warn("Mem0 search failed, answering without long term memory: {}", error.getMessage());
+            return Mono.just(List.of());
+        });
+    }
+
+    /**
+     * 写入文档；降级模式下失败只记录日志和指标，不让对话请求失败
+     */
+    private void persist(Timer timer, List<Document> documents) {
+        try {
+            timer.record(() -> this.vectorStore.add(documents));
+        } catch (RuntimeException e) {
+            if (!this.degradedMode) {
+                throw e;
+            }
+            this.degradedPersistCounter.increment();
+            logger.warn("Failed to add messages to mem0, continuing without persisting them: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 校验请求、构造 Mem0 检索请求，并按写入方式处理用户消息
+     */
+    private Turn prepare(ChatClientRequest request) {
         Assert.notNull(request.prompt().getUserMessage(), "User message cannot be null");
         Assert.notEmpty(request.prompt().getUserMessage().getMetadata(), "Metadata cannot contain null elements");
         Assert.isTrue(request.context().containsKey(USER_ID) || request.context().containsKey(AGENT_ID) || request.context().containsKey(RUN_ID), "user_id, agent_id, and run_id cannot all be null");
@@ -104,56 +296,85 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
         String query = userMessage != null ? userMessage.getText() : "";
 
 
-        Map<String, Object> params = request.context();
+        Map<String, Object> params = new HashMap<>(request.context());
+        Map<String, Object> metadata = userMessage.getMetadata();
+        metadata.putAll(params);
+
+        // 2. 按写入方式处理用户消息，关键路径上只保留检索
+        if (StringUtils.hasText(query)) {
+            switch (this.userMessageWriteMode) {
+                case ASYNC -> Mono.fromRunnable(() -> this.persistUserTimer.record(
+                                () -> this.vectorStore.add(toDocuments(List.of(userMessage)))))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .subscribe(null, error -> logger.warn("Failed to add user message to mem0: {}", error.getMessage(), error));
+                case WITH_RESPONSE -> params.put(PENDING_USER_TEXT, query);
+                default -> {
+                    // SYNC，在 augment() 中检索完成后写入
+                }
+            }
+        }
+
         SearchRequest searchRequest = MemZeroServerRequest.SearchRequest.builder()
                 .query(query)
                 .userId(params.containsKey(USER_ID)? params.get(USER_ID).toString() : null)
                 .agentId(params.containsKey(AGENT_ID)? params.get(AGENT_ID).toString() : null)
                 .runId(params.containsKey(RUN_ID)? params.get(RUN_ID).toString() : null)
                 .filters(params.containsKey(FILTERS) && params.get(FILTERS) instanceof Map? (Map<String, Object>) params.get(FILTERS) : null)
+                .limit(this.searchLimit)
                 .build();
+        return new Turn(request, userMessage, query, params, searchRequest);
+    }
 
-        List<Document> documents = this.vectorStore.similaritySearch(searchRequest);
-
-        String documentContext = documents == null ? ""
-                : documents.stream().map(Document::getText).collect(Collectors.joining(System.lineSeparator()));
-
-        // 3. Augment the user prompt with the document context.
-        String augmentedUserText = this.systemPromptTemplate
-                .render(Map.of("query", query, "long_term_memory", documentContext));
-
-        Map<String, Object> metadata = userMessage.getMetadata();
-        metadata.putAll(params);
-
-        if (StringUtils.hasText(query)) {
-            this.vectorStore.add(toDocuments(java.util.List.of(userMessage)));
+    private ChatClientRequest augment(Turn turn, List<Document> documents) {
+        // 3. 按 token 预算把记忆加入用户提示词
+        String augmentedUserText = this.renderTimer.record(() -> {
+            String documentContext = this.contextPacker.pack(documents).stream()
+                    .map(Document::getText)
+                    .collect(Collectors.joining(System.lineSeparator()));
+            return this.systemPromptTemplate.render(Map.of("query", turn.query(), "long_term_memory", documentContext));
+        });
+
+        if (StringUtils.hasText(turn.query()) && this.userMessageWriteMode == UserMessageWriteMode.SYNC) {
+            persist(this.persistUserTimer, toDocuments(List.of(turn.userMessage())));
         }
-        // 4. Update ChatClientRequest with augmented prompt.
-        return request.mutate()
-                .prompt(request.prompt().augmentUserMessage(augmentedUserText))
-                .context(params)
+        // 4. 用增强后的提示词更新 ChatClientRequest
+        return turn.request().mutate()
+                .prompt(turn.request().prompt().augmentUserMessage(augmentedUserText))
+                .context(turn.params())
                 .build();
     }
 
+    private record Turn(ChatClientRequest request, UserMessage userMessage, String query, Map<String, Object> params,
+                        SearchRequest searchRequest) {
+    }
+
     @Override
     public ChatClientResponse after(ChatClientResponse chatClientResponse, AdvisorChain advisorChain) {
-        List<Message> assistantMessages = new ArrayList<>();
+        return observation(AFTER_OBSERVATION).observe(() -> doAfter(chatClientResponse));
+    }
+
+    private ChatClientResponse doAfter(ChatClientResponse chatClientResponse) {
+        Map<String, Object> context = new HashMap<>(chatClientResponse.context());
+        Object pendingUserText = context.remove(PENDING_USER_TEXT);
+
+        List<Message> messages = new ArrayList<>();
+        if (pendingUserText != null) {
+            messages.add(UserMessage.builder().text(pendingUserText.toString()).metadata(context).build());
+        }
         if (chatClientResponse.chatResponse() != null) {
-            assistantMessages = chatClientResponse.chatResponse()
+            chatClientResponse.chatResponse()
                     .getResults()
-                    .stream()
-                    .map(generation -> {
+                    .forEach(generation -> {
                         Message message = generation.getOutput();
-                        message.getMetadata().putAll(chatClientResponse.context());
-                        return message;
-                    })
-                    .toList();
+                        message.getMetadata().putAll(context);
+                        messages.add(message);
+                    });
         }
 
-        // write mem0 memory
-        if (!assistantMessages.isEmpty()) {
-            logger.debug("before add assistant messages to mem0 , assistantMessages: {}", assistantMessages);
-            this.vectorStore.add(toDocuments(assistantMessages));
+        // 写入 Mem0，WITH_RESPONSE 模式下用户消息与回答合并为同一个 MemoryCreate
+        if (!messages.isEmpty()) {
+            logger.debug("before add turn messages to mem0 , messages: {}", messages);
+            persist(this.persistAssistantTimer, toDocuments(messages));
         }
         return chatClientResponse;
     }
@@ -179,13 +400,6 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
         return docs;
     }
 
-    private MemZeroServerRequest.SearchRequest getConversationId(Map<String, Object> context) {
-        MemZeroServerRequest.SearchRequest build = MemZeroServerRequest.SearchRequest.builder()
-                .userId(context.getOrDefault(USER_ID, "").toString())
-                .build();
-        return build;
-    }
-
     @Override
     public Scheduler getScheduler() {
         return this.scheduler;
@@ -205,6 +419,14 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
         private String defaultConversationId;
         private int order;
         private Scheduler scheduler;
+        private UserMessageWriteMode userMessageWriteMode = UserMessageWriteMode.WITH_RESPONSE;
+        private MemZeroMemoryContextPacker contextPacker;
+        private Integer searchLimit;
+        private boolean degradedMode = true;
+        private Duration searchTimeout;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+        private MemZeroMemoryPrefetcher prefetcher;
         private final VectorStore vectorStore;
 
         protected Builder(VectorStore vectorStore) {
@@ -234,8 +456,52 @@ public class MemZeroChatMemoryAdvisor implements BaseChatMemoryAdvisor {
             return this;
         }
 
+        public MemZeroChatMemoryAdvisor.Builder userMessageWriteMode(UserMessageWriteMode userMessageWriteMode) {
+            this.userMessageWriteMode = userMessageWriteMode;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder contextPacker(MemZeroMemoryContextPacker contextPacker) {
+            this.contextPacker = contextPacker;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder searchLimit(Integer searchLimit) {
+            this.searchLimit = searchLimit;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder degradedMode(boolean degradedMode) {
+            this.degradedMode = degradedMode;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder searchTimeout(Duration searchTimeout) {
+            this.searchTimeout = searchTimeout;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder observationRegistry(ObservationRegistry observationRegistry) {
+            this.observationRegistry = observationRegistry;
+            return this;
+        }
+
+        public MemZeroChatMemoryAdvisor.Builder prefetcher(MemZeroMemoryPrefetcher prefetcher) {
+            this.prefetcher = prefetcher;
+            return this;
+        }
+
         public MemZeroChatMemoryAdvisor build() {
-            return new MemZeroChatMemoryAdvisor(this.systemPromptTemplate, this.order, this.scheduler, this.vectorStore);
+            return new MemZeroChatMemoryAdvisor(this.systemPromptTemplate, this.order, this.scheduler, this.vectorStore,
+                    this.userMessageWriteMode,
+                    this.contextPacker != null ? this.contextPacker : MemZeroMemoryContextPacker.builder().build(),
+                    this.searchLimit, this.degradedMode, this.searchTimeout, this.meterRegistry, this.observationRegistry,
+                    this.prefetcher);
         }
     }
 }
@@ -0,0 +1,184 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Mem0 请求熔断器
+ *
+ * 连续 failureThreshold 次不可用错误（5xx、429、连接失败、超时）后打开，openDuration 内的请求直接抛出
+ * {@link MemZeroUnavailableException}，不再占用连接和重试预算；到期后进入半开状态，放行 halfOpenMaxCalls 个探测请求，
+ * 探测成功则关闭，失败则重新打开。4xx 等业务错误说明服务端可用，按成功处理。
+ */
+public class MemZeroCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenMaxCalls;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private int halfOpenCalls;
+
+    public MemZeroCircuitBreaker(boolean enabled, int failureThreshold, Duration openDuration, int halfOpenMaxCalls,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenMaxCalls = halfOpenMaxCalls;
+        Gauge.builder("mem0.circuitbreaker.state", this, breaker -> breaker.getState().ordinal())
+                .description("Mem0 circuit breaker state (0=closed, 1=open, 2=half_open)")
+                .register(meterRegistry);
+    }
+
+    public static MemZeroCircuitBreaker from(MemZeroChatMemoryProperties.Client client, MeterRegistry meterRegistry) {
+        MemZeroChatMemoryProperties.Client.CircuitBreaker circuitBreaker = client.getCircuitBreaker();
+        return new MemZeroCircuitBreaker(circuitBreaker.isEnabled(),
+                circuitBreaker.getFailureThreshold(),
+                Duration.ofSeconds(circuitBreaker.getOpenDurationSeconds()),
+                circuitBreaker.getHalfOpenMaxCalls(),
+                meterRegistry);
+    }
+
+    /**
+     * 用熔断器保护一次 Mem0 请求（包含其重试）
+     */
+    public <T> Mono<T> protect(Mono<T> source) {
+        if (!enabled) {
+            return source;
+        }
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(new MemZeroUnavailableException("Mem0 circuit breaker is open, failing fast"));
+            }
+            return source
+                    .doOnSuccess(value -> onSuccess())
+                    .doOnError(this::onError)
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    /**
+     * 流式请求的版本，完成时记为成功
+     */
+    public <T> Flux<T> protectMany(Flux<T> source) {
+        if (!enabled) {
+            return source;
+        }
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Flux.error(new MemZeroUnavailableException("Mem0 circuit breaker is open, failing fast"));
+            }
+            return source
+                    .doOnComplete(this::onSuccess)
+                    .doOnError(this::onError)
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenCalls >= halfOpenMaxCalls) {
+                return false;
+            }
+            halfOpenCalls++;
+        }
+        return true;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private void onError(Throwable error) {
+        if (error instanceof MemZeroNotConfiguredException) {
+            // 请求没有发到 Mem0，不代表服务状态
+            onCancel();
+        } else if (isUnavailable(error)) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAtNanos = System.nanoTime();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private synchronized void onCancel() {
+        // 探测请求被取消，归还名额
+        if (state == State.HALF_OPEN && halfOpenCalls > 0) {
+            halfOpenCalls--;
+        }
+    }
+
+    private void transitionTo(State next) {
+        if (state == next) {
+            return;
+        }
+        logger.warn("Mem0 circuit breaker {} -> {} (consecutive failures: {})", state, next, consecutiveFailures);
+        state = next;
+        halfOpenCalls = 0;
+        if (next == State.CLOSED) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * 判断异常是否表示 Mem0 服务不可用，会沿 cause 链查找
+     */
+    public static boolean isUnavailable(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof MemZeroUnavailableException
+                    || current instanceof WebClientRequestException
+                    || current instanceof TimeoutException
+                    || current instanceof IOException) {
+                return true;
+            }
+            if (current instanceof WebClientResponseException responseException) {
+                int status = responseException.getStatusCode().value();
+                return status >= 500 || status == 429;
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return false;
+    }
+}
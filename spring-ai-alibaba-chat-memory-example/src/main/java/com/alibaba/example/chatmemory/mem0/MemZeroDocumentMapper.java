@@ -0,0 +1,107 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.springframework.ai.document.Document;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 Mem0 的检索结果转换为 Document
+ *
+ * 单次遍历，只写入非空字段，metadata 按字段数预先分配容量，不再经过中间 Map 和 Stream。
+ */
+public final class MemZeroDocumentMapper {
+
+    // results 固定字段数：type、id、memory、hash、created_at、updated_at、user_id、agent_id、run_id、score、metadata、role
+    private static final int RESULT_FIELDS = 12;
+    // relations 固定字段数：type、source、relationship、target、destination
+    private static final int RELATION_FIELDS = 5;
+
+    private MemZeroDocumentMapper() {
+    }
+
+    public static List<Document> toDocuments(MemZeroServerResp response) {
+        List<MemZeroServerResp.MemZeroResults> results = nullToEmpty(response.getResults());
+        List<MemZeroServerResp.MemZeroRelation> relations = nullToEmpty(response.getRelations());
+        List<Document> documents = new ArrayList<>(results.size() + relations.size());
+        for (MemZeroServerResp.MemZeroResults result : results) {
+            documents.add(toDocument(result));
+        }
+        for (MemZeroServerResp.MemZeroRelation relation : relations) {
+            documents.add(toDocument(relation));
+        }
+        return documents;
+    }
+
+    static Document toDocument(MemZeroServerResp.MemZeroResults result) {
+        Map<String, Object> custom = result.getMetadata();
+        Map<String, Object> meta = new HashMap<>(capacity(RESULT_FIELDS + (custom == null ? 0 : custom.size())));
+        meta.put("type", "results");
+        putIfPresent(meta, "id", result.getId());
+        putIfPresent(meta, "memory", result.getMemory());
+        putIfPresent(meta, "hash", result.getHash());
+        putIfPresent(meta, "created_at", result.getCreatedAt());
+        putIfPresent(meta, "updated_at", result.getUpdatedAt());
+        putIfPresent(meta, "user_id", result.getUserId());
+        putIfPresent(meta, "agent_id", result.getAgentId());
+        putIfPresent(meta, "run_id", result.getRunId());
+        putIfPresent(meta, "score", result.getScore());
+        putIfPresent(meta, "metadata", custom);
+        putIfPresent(meta, "role", result.getRole());
+        if (custom != null) {
+            // 自定义 metadata 覆盖同名字段，空值会把同名字段一起去掉
+            for (Map.Entry<String, Object> entry : custom.entrySet()) {
+                if (isPresent(entry.getValue())) {
+                    meta.put(entry.getKey(), entry.getValue());
+                } else {
+                    meta.remove(entry.getKey());
+                }
+            }
+        }
+        return new Document(result.getId(), result.getMemory(), meta);
+    }
+
+    static Document toDocument(MemZeroServerResp.MemZeroRelation relation) {
+        Map<String, Object> meta = new HashMap<>(capacity(RELATION_FIELDS));
+        meta.put("type", "relations");
+        putIfPresent(meta, "source", relation.getSource());
+        putIfPresent(meta, "relationship", relation.getRelationship());
+        putIfPresent(meta, "target", relation.getTarget());
+        putIfPresent(meta, "destination", relation.getDestination());
+        String target = StringUtils.hasText(relation.getTarget()) ? relation.getTarget() : relation.getDestination();
+        String text = new StringBuilder(length(relation.getSource()) + length(relation.getRelationship()) + length(target) + 9)
+                .append(relation.getSource())
+                .append(" --[")
+                .append(relation.getRelationship())
+                .append("]--> ")
+                .append(target)
+                .toString();
+        return new Document(text, meta);
+    }
+
+    private static void putIfPresent(Map<String, Object> meta, String key, Object value) {
+        if (isPresent(value)) {
+            meta.put(key, value);
+        }
+    }
+
+    private static boolean isPresent(Object value) {
+        return value != null && !"".equals(value);
+    }
+
+    private static int capacity(int expectedSize) {
+        return (int) (expectedSize / 0.75f) + 1;
+    }
+
+    private static int length(String value) {
+        return value == null ? 4 : value.length();
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+}
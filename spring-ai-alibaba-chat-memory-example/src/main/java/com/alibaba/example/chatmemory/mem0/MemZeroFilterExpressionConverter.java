@@ -6,6 +6,7 @@ import org.springframework.ai.vectorstore.filter.converter.AbstractFilterExpress
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,19 +14,59 @@ import java.util.Map;
  * Mem0 过滤器转换器
  * 
  * 将 Spring AI 的 Filter.Expression 转换为 Mem0 API 支持的 Map 格式
+ * {@link #compile} 一次遍历直接生成 Map，不经过 JSON 字符串；编译结果按表达式做有界缓存
  * 参考: https://docs.mem0.ai/api-reference/memory/v2-search-memories
  */
 public class MemZeroFilterExpressionConverter extends AbstractFilterExpressionConverter {
     
     private static final ObjectMapper objectMapper = new ObjectMapper();
-    
+
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    // 已编译的过滤条件，按表达式（record，结构相等）做 LRU 缓存
+    private final Map<Filter.Expression, Map<String, Object>> compiled;
+
+    public MemZeroFilterExpressionConverter() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public MemZeroFilterExpressionConverter(int cacheSize) {
+        this.compiled = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Filter.Expression, Map<String, Object>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 将表达式直接编译为 Mem0 的 filters 结构，结果不可变，可以在请求间共享
+     */
+    public Map<String, Object> compile(Filter.Expression expression) {
+        synchronized (compiled) {
+            Map<String, Object> filters = compiled.get(expression);
+            if (filters != null) {
+                return filters;
+            }
+        }
+        Map<String, Object> filters = compileExpression(expression);
+        synchronized (compiled) {
+            compiled.put(expression, filters);
+        }
+        return filters;
+    }
+
     @Override
     public String convertExpression(Filter.Expression expression) {
+        return mapToJson(compile(expression));
+    }
+
+    private Map<String, Object> compileExpression(Filter.Expression expression) {
         switch (expression.type()) {
             case AND:
             case OR:
             case NOT:
-                return convertLogicalOperator(expression);
+                return compileLogicalOperator(expression);
             case EQ:
             case NE:
             case GT:
@@ -34,39 +75,50 @@ public class MemZeroFilterExpressionConverter extends AbstractFilterExpressionCo
             case LTE:
             case IN:
             case NIN:
-                return convertComparisonOperator(expression);
+                return compileComparisonOperator(expression);
             default:
                 throw new IllegalArgumentException("Unsupported operator: " + expression.type());
         }
     }
 
-    private String convertLogicalOperator(Filter.Expression expression) {
-        Map<String, Object> result = new HashMap<>();
+    private Map<String, Object> compileLogicalOperator(Filter.Expression expression) {
         switch (expression.type()) {
             case AND:
             case OR: {
-                List<Object> expressionsList = new ArrayList<>();
-                if (expression.left() instanceof Filter.Expression) {
-                    expressionsList.add(convertExpression((Filter.Expression) expression.left()));
+                List<Object> expressionsList = new ArrayList<>(2);
+                Filter.Expression left = operand(expression.left());
+                Filter.Expression right = operand(expression.right());
+                if (left != null) {
+                    expressionsList.add(compileExpression(left));
                 }
-                if (expression.right() instanceof Filter.Expression) {
-                    expressionsList.add(convertExpression((Filter.Expression) expression.right()));
+                if (right != null) {
+                    expressionsList.add(compileExpression(right));
                 }
-                result.put(expression.type().name(), expressionsList);
-                break;
+                return Map.of(expression.type().name(), List.copyOf(expressionsList));
             }
             case NOT: {
-                if (expression.left() instanceof Filter.Expression) {
-                    result.put("NOT", convertExpression((Filter.Expression) expression.left()));
-                }
-                break;
+                Filter.Expression operand = operand(expression.left());
+                return operand != null ? Map.of("NOT", compileExpression(operand)) : Map.of();
             }
+            default:
+                throw new IllegalArgumentException("Unsupported logical operator: " + expression.type());
         }
-        return mapToJson(result);
     }
 
-    private String convertComparisonOperator(Filter.Expression expression) {
-        Map<String, Object> result = new HashMap<>();
+    /**
+     * 逻辑运算的操作数可能是表达式，也可能是括号分组
+     */
+    private static Filter.Expression operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Expression expression) {
+            return expression;
+        }
+        if (operand instanceof Filter.Group group) {
+            return group.content();
+        }
+        return null;
+    }
+
+    private Map<String, Object> compileComparisonOperator(Filter.Expression expression) {
         String fieldName = null;
         Object value = null;
         if (expression.left() instanceof Filter.Key) {
@@ -80,33 +132,24 @@ public class MemZeroFilterExpressionConverter extends AbstractFilterExpressionCo
         }
         switch (expression.type()) {
             case EQ:
-                result.put(fieldName, value);
-                break;
+                return Map.of(fieldName, value);
             case NE:
-                result.put(fieldName, Map.of("ne", value));
-                break;
+                return Map.of(fieldName, Map.of("ne", value));
             case GT:
-                result.put(fieldName, Map.of("gt", value));
-                break;
+                return Map.of(fieldName, Map.of("gt", value));
             case GTE:
-                result.put(fieldName, Map.of("gte", value));
-                break;
+                return Map.of(fieldName, Map.of("gte", value));
             case LT:
-                result.put(fieldName, Map.of("lt", value));
-                break;
+                return Map.of(fieldName, Map.of("lt", value));
             case LTE:
-                result.put(fieldName, Map.of("lte", value));
-                break;
+                return Map.of(fieldName, Map.of("lte", value));
             case IN:
-                result.put(fieldName, Map.of("in", value));
-                break;
+                return Map.of(fieldName, Map.of("in", value));
             case NIN:
-                result.put(fieldName, Map.of("nin", value));
-                break;
+                return Map.of(fieldName, Map.of("nin", value));
             default:
                 throw new IllegalArgumentException("Unsupported comparison operator: " + expression.type());
         }
-        return mapToJson(result);
     }
 
     private String mapToJson(Map<String, Object> map) {
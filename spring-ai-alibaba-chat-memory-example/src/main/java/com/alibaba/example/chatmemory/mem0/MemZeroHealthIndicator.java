@@ -0,0 +1,37 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * Mem0 健康状态：配置完成前为 OUT_OF_SERVICE，重试次数用尽为 DOWN
+ *
+ * 加入 readiness 分组（management.endpoint.health.group.readiness.include）后，Mem0 配置完成前实例不接收流量。
+ */
+public class MemZeroHealthIndicator extends AbstractHealthIndicator {
+
+    private final MemZeroServerInitializer initializer;
+    private final ReactiveMemZeroServiceClient client;
+
+    public MemZeroHealthIndicator(MemZeroServerInitializer initializer, ReactiveMemZeroServiceClient client) {
+        super("Mem0 health check failed");
+        this.initializer = initializer;
+        this.client = client;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        switch (initializer.getState()) {
+            case READY -> builder.up();
+            case FAILED -> builder.down();
+            default -> builder.outOfService();
+        }
+        builder.withDetail("state", initializer.getState())
+                .withDetail("configureAttempts", initializer.getAttempts())
+                .withDetail("circuitBreaker", client.circuitBreakerState());
+        Throwable lastError = initializer.getLastError();
+        if (lastError != null) {
+            builder.withDetail("lastError", String.valueOf(lastError.getMessage()));
+        }
+    }
+}
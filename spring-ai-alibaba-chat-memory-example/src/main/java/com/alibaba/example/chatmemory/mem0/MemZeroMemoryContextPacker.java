@@ -0,0 +1,114 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.*;
+
+/**
+ * 把 Mem0 检索结果打包为有长度上限的 LONG_TERM_MEMORY
+ *
+ * 记忆（"results" 类型）按分数排序，过滤掉低于最低分数的，并按 hash 去重，之后追加图关系；
+ * 在 token 预算内贪心地选取文档。
+ * @author Morain Miao
+ * @since 1.0.0
+ */
+public class MemZeroMemoryContextPacker {
+
+    private static final String TYPE = "type";
+    private static final String TYPE_RELATIONS = "relations";
+    private static final String SCORE = "score";
+    private static final String HASH = "hash";
+
+    // 渲染结果中两个文档之间的分隔符
+    private static final int SEPARATOR_TOKENS = 1;
+
+    private final int tokenBudget;
+
+    private final double minScore;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    public MemZeroMemoryContextPacker(int tokenBudget, double minScore, TokenCountEstimator tokenCountEstimator) {
+        this.tokenBudget = tokenBudget;
+        this.minScore = minScore;
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    public List<Document> pack(List<Document> documents) {
+        if (documents == null || documents.isEmpty()) {
+            return List.of();
+        }
+        List<Document> results = new ArrayList<>(documents.size());
+        List<Document> relations = new ArrayList<>();
+        for (Document document : documents) {
+            if (TYPE_RELATIONS.equals(document.getMetadata().get(TYPE))) {
+                relations.add(document);
+            } else if (score(document) >= this.minScore) {
+                results.add(document);
+            }
+        }
+        results.sort(Comparator.comparingDouble(MemZeroMemoryContextPacker::score).reversed());
+
+        List<Document> packed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int remaining = this.tokenBudget;
+        for (List<Document> group : List.of(results, relations)) {
+            for (Document document : group) {
+                if (document.getText() == null || !seen.add(dedupKey(document))) {
+                    continue;
+                }
+                int tokens = this.tokenCountEstimator.estimate(document.getText()) + SEPARATOR_TOKENS;
+                // 贪心：放不下的跳过，继续尝试更短的
+                if (tokens <= remaining) {
+                    packed.add(document);
+                    remaining -= tokens;
+                }
+            }
+        }
+        return packed;
+    }
+
+    private static double score(Document document) {
+        return document.getMetadata().get(SCORE) instanceof Number score ? score.doubleValue() : 0.0;
+    }
+
+    private static String dedupKey(Document document) {
+        Object hash = document.getMetadata().get(HASH);
+        return hash != null ? HASH + ":" + hash : "text:" + document.getText();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int tokenBudget = 2000;
+        private double minScore = 0.0;
+        private TokenCountEstimator tokenCountEstimator;
+
+        protected Builder() {
+        }
+
+        public Builder tokenBudget(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+            return this;
+        }
+
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public MemZeroMemoryContextPacker build() {
+            return new MemZeroMemoryContextPacker(this.tokenBudget, this.minScore,
+                    this.tokenCountEstimator != null ? this.tokenCountEstimator : new JTokkitTokenCountEstimator());
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MemZeroChatMemoryAdvisor} 的按作用域记忆预取
+ *
+ * 对话作用域 (user_id, agent_id, run_id) 活跃期间，该作用域每次写入 Mem0 成功后，在后台用该作用域最近一次的查询
+ * 向 Mem0 检索 topN 条记忆（多于单次检索的 limit）。之后同一作用域的检索如果预取结果足够新，就从中选出与新查询
+ * 最相关的 limit 条返回，否则由 advisor 实时检索。
+ * 本地的词法相似度（词和 CJK 二元组重合）只用于选择和排序，返回的文档保留 Mem0 的 "score" 和全部 relations。
+ * @author Morain Miao
+ * @since 1.0.0
+ */
+public class MemZeroMemoryPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroMemoryPrefetcher.class);
+
+    private static final String SCORE = "score";
+
+    private static final String TYPE = "type";
+
+    private static final String TYPE_RELATIONS = "relations";
+
+    private final MemZeroMemoryStore memoryStore;
+
+    private final int topN;
+
+    private final long maxAgeNanos;
+
+    private final long activeWindowNanos;
+
+    private final LinkedHashMap<Scope, Entry> entries;
+
+    private final Set<Scope> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter staleCounter;
+
+    private final Counter prefetchCounter;
+
+    public MemZeroMemoryPrefetcher(MemZeroMemoryStore memoryStore, int topN, Duration maxAge, Duration activeWindow,
+                                   int maxScopes, MeterRegistry meterRegistry) {
+        this.memoryStore = memoryStore;
+        this.topN = topN;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.activeWindowNanos = activeWindow.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Scope, Entry> eldest) {
+                return size() > maxScopes;
+            }
+        };
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+        this.staleCounter = lookupCounter(meterRegistry, "stale");
+        this.prefetchCounter = Counter.builder("mem0.advisor.prefetch.fetches")
+                .description("Background Mem0 fetches issued by the advisor prefetch")
+                .register(meterRegistry);
+        memoryStore.addPersistListener(memoryCreate -> onPersisted(
+                new Scope(memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId())));
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("mem0.advisor.prefetch.lookups")
+                .description("Advisor searches answered from the prefetched memories")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 返回按查询重新排序的预取记忆，需要实时检索时返回 null；同时把作用域标记为活跃
+     */
+    public List<Document> search(MemZeroServerRequest.SearchRequest request) {
+        Scope scope = Scope.of(request);
+        long now = System.nanoTime();
+        Entry entry;
+        // 过滤条件无法在本地计算，这样的查询也不用于预取
+        boolean filtered = request.getFilters() != null && !request.getFilters().isEmpty();
+        synchronized (this.entries) {
+            entry = this.entries.get(scope);
+            String lastQuery = filtered || !StringUtils.hasText(request.getQuery()) ? null : request.getQuery();
+            this.entries.put(scope, entry == null ? new Entry(null, 0, now, lastQuery) : entry.touch(now, lastQuery));
+        }
+        if (filtered) {
+            this.missCounter.increment();
+            return null;
+        }
+        if (entry == null || entry.documents() == null) {
+            this.missCounter.increment();
+            return null;
+        }
+        if (now - entry.fetchedNanos() > this.maxAgeNanos) {
+            this.staleCounter.increment();
+            return null;
+        }
+        int limit = request.getLimit() != null ? request.getLimit() : this.topN;
+        // 预取的记忆不够 limit 条时无法判断其余的记忆是否更相关
+        if (limit > this.topN) {
+            this.missCounter.increment();
+            return null;
+        }
+        this.hitCounter.increment();
+        return rerank(request.getQuery(), entry.documents(), limit);
+    }
+
+    private void onPersisted(Scope scope) {
+        Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(scope);
+        }
+        if (entry == null || System.nanoTime() - entry.lastActiveNanos() > this.activeWindowNanos) {
+            return;
+        }
+        // 还没有可用的查询时不预取，空查询只会按存储顺序返回记忆
+        if (entry.lastQuery() == null) {
+            return;
+        }
+        if (!this.inFlight.add(scope)) {
+            return;
+        }
+        this.prefetchCounter.increment();
+        // 对话的下一轮通常与上一轮相关：用上一次的查询做语义检索，取比单次检索更多的结果
+        MemZeroServerRequest.SearchRequest request = MemZeroServerRequest.SearchRequest.builder()
+                .query(entry.lastQuery())
+                .userId(scope.userId())
+                .agentId(scope.agentId())
+                .runId(scope.runId())
+                .limit(this.topN)
+                .build();
+        this.memoryStore.similaritySearchReactive(request)
+                .doFinally(signal -> this.inFlight.remove(scope))
+                .subscribe(documents -> {
+                    long now = System.nanoTime();
+                    synchronized (this.entries) {
+                        Entry current = this.entries.get(scope);
+                        this.entries.put(scope, current != null ? current.fetched(documents, now)
+                                : new Entry(documents, now, now, entry.lastQuery()));
+                    }
+                }, error -> logger.warn("Failed to prefetch mem0 memories for {}: {}", scope, error.getMessage()));
+    }
+
+    /**
+     * 按与查询的词法相似度选出前 limit 条记忆，相似度相同时按 Mem0 的分数；文档原样返回，relations 全部保留在最后
+     */
+    static List<Document> rerank(String query, List<Document> documents, int limit) {
+        Set<String> queryTerms = terms(query);
+        List<Map.Entry<Document, Double>> memories = new ArrayList<>(documents.size());
+        List<Document> relations = new ArrayList<>();
+        for (Document document : documents) {
+            if (TYPE_RELATIONS.equals(document.getMetadata().get(TYPE))) {
+                relations.add(document);
+            } else if (document.getText() != null) {
+                memories.add(Map.entry(document, similarity(queryTerms, terms(document.getText()))));
+            }
+        }
+        memories.sort(Map.Entry.<Document, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.comparingDouble(MemZeroMemoryPrefetcher::score).reversed())));
+        List<Document> ranked = new ArrayList<>(Math.min(limit, memories.size()) + relations.size());
+        for (int i = 0; i < memories.size() && i < limit; i++) {
+            ranked.add(memories.get(i).getKey());
+        }
+        ranked.addAll(relations);
+        return ranked;
+    }
+
+    private static double score(Document document) {
+        return document.getMetadata().get(SCORE) instanceof Number score ? score.doubleValue() : 0.0;
+    }
+
+    // 两个词项集合的余弦相似度
+    private static double similarity(Set<String> queryTerms, Set<String> documentTerms) {
+        if (queryTerms.isEmpty() || documentTerms.isEmpty()) {
+            return 0.0;
+        }
+        int common = 0;
+        for (String term : queryTerms) {
+            if (documentTerms.contains(term)) {
+                common++;
+            }
+        }
+        return common / Math.sqrt((double) queryTerms.size() * documentTerms.size());
+    }
+
+    /**
+     * 小写的词，以及 CJK 连续字符的二元组（CJK 词之间没有空格）
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (!StringUtils.hasText(text)) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+                flush(word, terms);
+                if (previousCjk >= 0) {
+                    terms.add(new String(new int[] {previousCjk, codePoint}, 0, 2));
+                } else {
+                    terms.add(new String(Character.toChars(codePoint)));
+                }
+                previousCjk = codePoint;
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+                previousCjk = -1;
+            } else {
+                flush(word, terms);
+                previousCjk = -1;
+            }
+        }
+        flush(word, terms);
+        return terms;
+    }
+
+    private static void flush(StringBuilder word, Set<String> terms) {
+        if (!word.isEmpty()) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    record Scope(String userId, String agentId, String runId) {
+
+        static Scope of(MemZeroServerRequest.SearchRequest request) {
+            return new Scope(request.getUserId(), request.getAgentId(), request.getRunId());
+        }
+    }
+
+    /**
+     * lastQuery 是最近一次可以用于预取的查询（非空且没有过滤条件）
+     */
+    private record Entry(List<Document> documents, long fetchedNanos, long lastActiveNanos, String lastQuery) {
+
+        Entry touch(long now, String query) {
+            return new Entry(this.documents, this.fetchedNanos, now, query != null ? query : this.lastQuery);
+        }
+
+        Entry fetched(List<Document> fetchedDocuments, long now) {
+            return new Entry(fetchedDocuments, now, this.lastActiveNanos, this.lastQuery);
+        }
+    }
+
+    public static Builder builder(MemZeroMemoryStore memoryStore) {
+        return new Builder(memoryStore);
+    }
+
+    public static class Builder {
+        private final MemZeroMemoryStore memoryStore;
+        private int topN = 50;
+        private Duration maxAge = Duration.ofSeconds(30);
+        private Duration activeWindow = Duration.ofMinutes(10);
+        private int maxScopes = 10000;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        protected Builder(MemZeroMemoryStore memoryStore) {
+            this.memoryStore = memoryStore;
+        }
+
+        public Builder topN(int topN) {
+            this.topN = topN;
+            return this;
+        }
+
+        public Builder maxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        public Builder activeWindow(Duration activeWindow) {
+            this.activeWindow = activeWindow;
+            return this;
+        }
+
+        public Builder maxScopes(int maxScopes) {
+            this.maxScopes = maxScopes;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public MemZeroMemoryPrefetcher build() {
+            return new MemZeroMemoryPrefetcher(this.memoryStore, this.topN, this.maxAge, this.activeWindow,
+                    this.maxScopes, this.meterRegistry);
+        }
+    }
+}
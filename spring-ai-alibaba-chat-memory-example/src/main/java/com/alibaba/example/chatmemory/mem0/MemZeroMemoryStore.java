@@ -1,21 +1,20 @@
 package com.alibaba.example.chatmemory.mem0;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.util.JacksonUtils;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import static com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor.*;
 
@@ -27,13 +26,16 @@ import static com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor.*;
 public class MemZeroMemoryStore implements InitializingBean, VectorStore {
 
     private final MemZeroServiceClient mem0Client;
-    private final ObjectMapper objectMapper;
     private final MemZeroFilterExpressionConverter mem0FilterExpressionConverter;
+    // 为空时同步写入
+    private final MemZeroWriteBehindQueue writeBehindQueue;
+    // 同步写入时的写入成功回调，异步写入时注册到 writeBehindQueue
+    private final List<Consumer<MemZeroServerRequest.MemoryCreate>> persistListeners = new CopyOnWriteArrayList<>();
 
-    protected MemZeroMemoryStore(MemZeroServiceClient client) {
+    protected MemZeroMemoryStore(MemZeroServiceClient client, MemZeroWriteBehindQueue writeBehindQueue) {
         this.mem0Client = client;
+        this.writeBehindQueue = writeBehindQueue;
         this.mem0FilterExpressionConverter = new MemZeroFilterExpressionConverter();
-        this.objectMapper = JsonMapper.builder().addModules(JacksonUtils.instantiateAvailableModules()).build();
     }
 
     public static MemZeroMemoryStoreBuilder builder(MemZeroServiceClient client) {
@@ -42,13 +44,19 @@ public class MemZeroMemoryStore implements InitializingBean, VectorStore {
 
     public static final class MemZeroMemoryStoreBuilder{
         private final MemZeroServiceClient client;
+        private MemZeroWriteBehindQueue writeBehindQueue;
 
         public MemZeroMemoryStoreBuilder(MemZeroServiceClient client) {
             this.client = client;
         }
 
+        public MemZeroMemoryStoreBuilder writeBehindQueue(MemZeroWriteBehindQueue writeBehindQueue) {
+            this.writeBehindQueue = writeBehindQueue;
+            return this;
+        }
+
         public MemZeroMemoryStore build() {
-            return new MemZeroMemoryStore(client);
+            return new MemZeroMemoryStore(client, writeBehindQueue);
         }
 
     }
@@ -60,21 +68,84 @@ public class MemZeroMemoryStore implements InitializingBean, VectorStore {
 
     @Override
     public void add(List<Document> documents) {
-        //TODO 将role相同的message合并
-        List<MemZeroServerRequest.MemoryCreate> messages = documents.stream().map(doc ->
-                MemZeroServerRequest.MemoryCreate.builder()
-                    .messages(List.of(new MemZeroServerRequest.Message(
-                            doc.getMetadata().get("role").toString(),
-                            doc.getText()
-                    )))
-                    .metadata(doc.getMetadata())
-                    .agentId(doc.getMetadata().containsKey(AGENT_ID)?doc.getMetadata().get(AGENT_ID).toString():null)
-                    .runId(doc.getMetadata().containsKey(RUN_ID)?doc.getMetadata().get(RUN_ID).toString():null)
-                    .userId(doc.getMetadata().containsKey(USER_ID)?doc.getMetadata().get(USER_ID).toString():null)
-                    .build()
-        ).toList();
-        //TODO 增加异步方式
-        messages.forEach(mem0Client::addMemory);
+        // 按 (user_id, agent_id, run_id) 分组，每个作用域只发送一个 MemoryCreate，减少 Mem0 的 LLM 抽取次数
+        List<MemZeroServerRequest.MemoryCreate> messages = toMemoryCreates(documents);
+        if (writeBehindQueue != null) {
+            messages.forEach(writeBehindQueue::submit);
+        } else {
+            messages.forEach(memoryCreate -> {
+                mem0Client.addMemory(memoryCreate);
+                persistListeners.forEach(listener -> listener.accept(memoryCreate));
+            });
+        }
+    }
+
+    /**
+     * 注册记忆写入 Mem0 成功后的回调
+     */
+    public void addPersistListener(Consumer<MemZeroServerRequest.MemoryCreate> listener) {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.addPersistListener(listener);
+        } else {
+            persistListeners.add(listener);
+        }
+    }
+
+    /**
+     * 批量回灌历史对话，每个元素是一轮对话的文档，按作用域合并后交给 {@link MemZeroBulkIngestion} 写入
+     */
+    public Flux<MemZeroBulkIngestion.Progress> bulkAdd(Flux<List<Document>> conversations, MemZeroBulkIngestion.Options options) {
+        return mem0Client.reactive().addMemories(conversations.concatMapIterable(this::toMemoryCreates), options);
+    }
+
+    // 按 (user_id, agent_id, run_id) 分组，每个作用域只生成一个 MemoryCreate
+    private List<MemZeroServerRequest.MemoryCreate> toMemoryCreates(List<Document> documents) {
+        Map<MemoryScope, List<Document>> scopes = new LinkedHashMap<>();
+        for (Document doc : documents) {
+            scopes.computeIfAbsent(MemoryScope.of(doc.getMetadata()), scope -> new ArrayList<>()).add(doc);
+        }
+        return scopes.entrySet().stream()
+                .map(entry -> toMemoryCreate(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * 将同一作用域的文档合并为一个 MemoryCreate，连续相同 role 的消息合并为一条
+     */
+    private MemZeroServerRequest.MemoryCreate toMemoryCreate(MemoryScope scope, List<Document> docs) {
+        List<MemZeroServerRequest.Message> merged = new ArrayList<>(docs.size());
+        Map<String, Object> metadata = new HashMap<>();
+        for (Document doc : docs) {
+            String role = doc.getMetadata().get("role").toString();
+            metadata.putAll(doc.getMetadata());
+            MemZeroServerRequest.Message last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && role.equals(last.getRole())) {
+                last.setContent(last.getContent() + "\n" + doc.getText());
+            } else {
+                merged.add(new MemZeroServerRequest.Message(role, doc.getText()));
+            }
+        }
+        // 多个 role 合并后，metadata 中的 role 已经没有意义
+        if (merged.size() > 1) {
+            metadata.remove("role");
+        }
+        return MemZeroServerRequest.MemoryCreate.builder()
+                .messages(merged)
+                .metadata(metadata)
+                .userId(scope.userId())
+                .agentId(scope.agentId())
+                .runId(scope.runId())
+                .build();
+    }
+
+    private record MemoryScope(String userId, String agentId, String runId) {
+
+        static MemoryScope of(Map<String, Object> metadata) {
+            return new MemoryScope(
+                    metadata.containsKey(USER_ID) ? metadata.get(USER_ID).toString() : null,
+                    metadata.containsKey(AGENT_ID) ? metadata.get(AGENT_ID).toString() : null,
+                    metadata.containsKey(RUN_ID) ? metadata.get(RUN_ID).toString() : null);
+        }
     }
 
     @Override
@@ -94,67 +165,24 @@ public class MemZeroMemoryStore implements InitializingBean, VectorStore {
 
     @Override
     public List<Document> similaritySearch(SearchRequest request) {
+        return MemZeroDocumentMapper.toDocuments(mem0Client.searchMemories(toMem0SearchRequest(request)));
+    }
+
+    /**
+     * 非阻塞检索，供流式 Advisor 与 WebFlux 调用方使用
+     */
+    public Mono<List<Document>> similaritySearchReactive(SearchRequest request) {
+        return Mono.fromCallable(() -> toMem0SearchRequest(request))
+                .flatMap(mem0Client.reactive()::searchMemories)
+                .map(MemZeroDocumentMapper::toDocuments);
+    }
+
+    private MemZeroServerRequest.SearchRequest toMem0SearchRequest(SearchRequest request) {
         MemZeroServerRequest.SearchRequest search = (MemZeroServerRequest.SearchRequest) request;
 
         if (request.getFilterExpression() != null){
-            String jsonStr = this.mem0FilterExpressionConverter.convertExpression(request.getFilterExpression());
-
-            Map<String, Object> filtersMap = null;
-            if (jsonStr != null && !jsonStr.isEmpty()) {
-                try {
-                    filtersMap = objectMapper.readValue(jsonStr, new TypeReference<Map<String, Object>>() {});
-                } catch (Exception e) {
-                    // 如果转换失败，使用空Map
-                    filtersMap = new HashMap<>();
-                }
-                search.setFilters(filtersMap);
-            }
+            search.setFilters(this.mem0FilterExpressionConverter.compile(request.getFilterExpression()));
         }
-
-        MemZeroServerResp memZeroServerResp = mem0Client.searchMemories(search);
-        List<MemZeroServerResp.MemZeroResults> results = memZeroServerResp.getResults();
-        List<MemZeroServerResp.MemZeroRelation> relations = memZeroServerResp.getRelations();
-
-        List<Document> documents = Stream.concat(
-                results.stream().map(result -> {
-                    Map<String, Object> meta = new HashMap<>();
-                    meta.put("type", "results");
-                    meta.put("id", result.getId());
-                    meta.put("memory", result.getMemory());
-                    meta.put("hash", result.getHash());
-                    meta.put("created_at", result.getCreatedAt());
-                    meta.put("updated_at", result.getUpdatedAt());
-                    meta.put("user_id", result.getUserId());
-                    meta.put("agent_id", result.getAgentId());
-                    meta.put("run_id", result.getRunId());
-                    meta.put("score", result.getScore());
-                    meta.put("metadata", result.getMetadata());
-                    meta.put("role", result.getRole());
-
-                    if (result.getMetadata() != null) meta.putAll(result.getMetadata());
-                    return new Document(result.getId(), result.getMemory(), filterNullElement(meta));
-                }),
-                relations.stream().map(relation -> {
-                    Map<String, Object> meta = new HashMap<>();
-                    meta.put("type", "relations");
-                    meta.put("source", relation.getSource());
-                    meta.put("relationship", relation.getRelationship());
-                    meta.put("target", relation.getTarget());
-                    meta.put("destination", relation.getDestination());
-                    String text = relation.getSource() + " --[" + relation.getRelationship() + "]--> " + (StringUtils.hasText(relation.getTarget())?relation.getTarget():relation.getDestination());
-                    return new Document(text, filterNullElement(meta));
-                })
-        ).toList();
-        return documents;
-
-    }
-
-    private Map<String, Object> filterNullElement(Map<String, Object> map){
-        return map.entrySet().stream()
-                .filter(entry -> entry.getValue() != null && !"".equals(entry.getValue()))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue
-                ));
+        return search;
     }
 }
@@ -0,0 +1,510 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Mem0 近端缓存
+ *
+ * 包装 {@link MemZeroMemoryStore}，为最近活跃的作用域 (user_id, agent_id, run_id) 在本进程内缓存 Mem0 的检索结果。
+ * 查询文本的特征哈希向量（词和 CJK 二元组，L2 归一化）只用作词法预筛：新的查询与作用域内某个已缓存查询的余弦相似度
+ * 不低于 minQuerySimilarity、且已缓存查询的 limit 和 similarityThreshold 能覆盖新的查询时，直接返回 Mem0 为那个查询
+ * 返回的结果（截取前 limit 条记忆，保留 Mem0 的 "score" 和全部 relations），否则走 Mem0 并缓存结果。
+ * 本地不会计算记忆的分数，也不会改变 Mem0 返回的顺序。
+ * 每个作用域的查询向量平铺在一个建立时分配、之后复用的数组中，最多 maxQueriesPerScope 个，按轮转替换；
+ * 记忆写入 Mem0 成功或删除记忆后清空相关作用域，带过滤条件或空查询的检索始终走 Mem0。
+ * 向量数组和缓存文本的总大小超过 maxMemoryBytes 时按 LRU 淘汰作用域。
+ */
+public class MemZeroNearCacheVectorStore implements VectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroNearCacheVectorStore.class);
+
+    private static final String TYPE = "type";
+
+    private static final String TYPE_RELATIONS = "relations";
+
+    private final MemZeroMemoryStore delegate;
+    private final int dimensions;
+    private final int maxQueriesPerScope;
+    private final double minQuerySimilarity;
+    private final long stalenessNanos;
+    private final long maxMemoryBytes;
+
+    // accessOrder = true，实现作用域的 LRU 淘汰
+    private final LinkedHashMap<Scope, ScopeIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    // 最近一次影响未缓存作用域的写入时间，之前开始的检索结果不能新建作用域
+    private long uncachedWriteNanos = Long.MIN_VALUE;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+    private final Counter bypassCounter;
+    private final Counter evictionCounter;
+
+    public MemZeroNearCacheVectorStore(MemZeroMemoryStore delegate, int dimensions, int maxQueriesPerScope,
+                                       double minQuerySimilarity, Duration staleness, long maxMemoryBytes,
+                                       MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.dimensions = dimensions;
+        this.maxQueriesPerScope = maxQueriesPerScope;
+        this.minQuerySimilarity = minQuerySimilarity;
+        this.stalenessNanos = staleness.toNanos();
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.staleCounter = requestCounter(meterRegistry, "stale");
+        this.bypassCounter = requestCounter(meterRegistry, "bypass");
+        this.evictionCounter = Counter.builder("mem0.nearcache.evictions")
+                .description("Scopes evicted from the Mem0 near cache to stay under the memory ceiling")
+                .register(meterRegistry);
+        Gauge.builder("mem0.nearcache.scopes", this, MemZeroNearCacheVectorStore::size)
+                .description("Number of scopes held in the Mem0 near cache")
+                .register(meterRegistry);
+        Gauge.builder("mem0.nearcache.bytes", this, MemZeroNearCacheVectorStore::usedBytes)
+                .description("Estimated memory used by the Mem0 near cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        delegate.addPersistListener(memoryCreate -> invalidate(
+                new Scope(memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId())));
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("mem0.nearcache.requests")
+                .description("Mem0 near cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public static Builder builder(MemZeroMemoryStore delegate) {
+        return new Builder(delegate);
+    }
+
+    public MemZeroMemoryStore getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        // Mem0 会从对话中抽取记忆，写入成功后由持久化回调清空对应作用域
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+        Set<String> ids = new HashSet<>(idList);
+        long now = System.nanoTime();
+        synchronized (indexes) {
+            // 被删除的记忆可能出现在任何作用域之后的检索结果中
+            uncachedWriteNanos = now;
+            for (ScopeIndex index : indexes.values()) {
+                if (index.contains(ids)) {
+                    usedBytes -= index.clear(now);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+        long now = System.nanoTime();
+        synchronized (indexes) {
+            uncachedWriteNanos = now;
+            for (ScopeIndex index : indexes.values()) {
+                usedBytes -= index.clear(now);
+            }
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(String query) {
+        return delegate.similaritySearch(query);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Lookup lookup = lookup(request);
+        if (lookup == null) {
+            return delegate.similaritySearch(request);
+        }
+        if (lookup.documents() != null) {
+            return lookup.documents();
+        }
+        List<Document> documents = delegate.similaritySearch(request);
+        put(lookup, documents);
+        return documents;
+    }
+
+    /**
+     * 非阻塞检索，本地命中时不会切换线程
+     */
+    public Mono<List<Document>> similaritySearchReactive(SearchRequest request) {
+        return Mono.defer(() -> {
+            Lookup lookup = lookup(request);
+            if (lookup == null) {
+                return delegate.similaritySearchReactive(request);
+            }
+            if (lookup.documents() != null) {
+                return Mono.just(lookup.documents());
+            }
+            return delegate.similaritySearchReactive(request).doOnNext(documents -> put(lookup, documents));
+        });
+    }
+
+    /**
+     * 在本地缓存中查找相近的查询；返回 null 表示不能使用缓存，documents 为 null 表示需要走 Mem0 并缓存结果
+     */
+    private Lookup lookup(SearchRequest request) {
+        if (!(request instanceof MemZeroServerRequest.SearchRequest search)
+                || request.getFilterExpression() != null
+                || (search.getFilters() != null && !search.getFilters().isEmpty())
+                || !StringUtils.hasText(search.getQuery())) {
+            bypassCounter.increment();
+            return null;
+        }
+        Scope scope = new Scope(search.getUserId(), search.getAgentId(), search.getRunId());
+        // limit 为空时由 Mem0 决定条数，只能用同样没有 limit 的缓存结果回答
+        int limit = search.getLimit() != null ? search.getLimit() : Integer.MAX_VALUE;
+        Lookup lookup = new Lookup(scope, embed(search.getQuery()), limit, request.getSimilarityThreshold(), System.nanoTime(), null);
+        List<Document> documents;
+        boolean stale;
+        synchronized (indexes) {
+            ScopeIndex index = indexes.get(scope);
+            int slot = index == null ? -1 : index.match(lookup, minQuerySimilarity);
+            if (slot < 0) {
+                missCounter.increment();
+                return lookup;
+            }
+            Cached cached = index.cached(slot);
+            stale = lookup.startNanos() - cached.loadedNanos() > stalenessNanos;
+            documents = stale ? null : cached.documents();
+        }
+        if (stale) {
+            staleCounter.increment();
+            return lookup;
+        }
+        hitCounter.increment();
+        return lookup.withDocuments(truncate(documents, limit));
+    }
+
+    /**
+     * 缓存 Mem0 的检索结果；检索开始后作用域有写入时丢弃
+     */
+    private void put(Lookup lookup, List<Document> documents) {
+        Cached cached = new Cached(lookup.limit(), lookup.threshold(), List.copyOf(documents), lookup.startNanos(), textBytes(documents));
+        synchronized (indexes) {
+            ScopeIndex index = indexes.get(lookup.scope());
+            if (index == null) {
+                if (lookup.startNanos() <= uncachedWriteNanos) {
+                    return;
+                }
+                index = new ScopeIndex(new float[maxQueriesPerScope * dimensions], new Cached[maxQueriesPerScope], dimensions);
+                indexes.put(lookup.scope(), index);
+                usedBytes += index.vectorBytes();
+            } else if (lookup.startNanos() <= index.clearedNanos()) {
+                return;
+            }
+            usedBytes += index.put(lookup, cached, minQuerySimilarity);
+            Iterator<ScopeIndex> eldest = indexes.values().iterator();
+            while (usedBytes > maxMemoryBytes && eldest.hasNext()) {
+                ScopeIndex evicted = eldest.next();
+                if (evicted != index) {
+                    usedBytes -= evicted.bytes();
+                    eldest.remove();
+                    evictionCounter.increment();
+                }
+            }
+            if (usedBytes > maxMemoryBytes) {
+                logger.debug("Scope {} needs {} bytes, more than the near cache ceiling, not cached", lookup.scope(), index.bytes());
+                usedBytes -= index.bytes();
+                indexes.remove(lookup.scope());
+            }
+        }
+    }
+
+    /**
+     * 清空与写入作用域重叠的所有作用域，例如写入 (u, null, r) 也会清空 (u, null, null) 的缓存
+     */
+    private void invalidate(Scope scope) {
+        long now = System.nanoTime();
+        synchronized (indexes) {
+            // 尚未缓存的重叠作用域也可能有进行中的检索
+            uncachedWriteNanos = now;
+            for (Map.Entry<Scope, ScopeIndex> entry : indexes.entrySet()) {
+                if (entry.getKey().overlaps(scope)) {
+                    usedBytes -= entry.getValue().clear(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * 保留 Mem0 顺序中的前 limit 条记忆，以及全部 relations
+     */
+    static List<Document> truncate(List<Document> documents, int limit) {
+        List<Document> truncated = new ArrayList<>(documents.size());
+        int memories = 0;
+        for (Document document : documents) {
+            if (TYPE_RELATIONS.equals(document.getMetadata().get(TYPE))) {
+                truncated.add(document);
+            } else if (memories < limit) {
+                truncated.add(document);
+                memories++;
+            }
+        }
+        return truncated;
+    }
+
+    private static long textBytes(List<Document> documents) {
+        long bytes = 0;
+        for (Document document : documents) {
+            if (document.getText() != null) {
+                bytes += (long) document.getText().length() * Character.BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 特征哈希：词项哈希到固定维度后 L2 归一化，点积即余弦相似度
+     */
+    float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        Set<String> terms = MemZeroMemoryPrefetcher.terms(text);
+        for (String term : terms) {
+            vector[Math.floorMod(term.hashCode(), dimensions)] += 1.0f;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    int size() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    long usedBytes() {
+        synchronized (indexes) {
+            return usedBytes;
+        }
+    }
+
+    private record Scope(String userId, String agentId, String runId) {
+
+        // 与检索缓存相同的规则：任一方为空或两者相等即视为兼容
+        boolean overlaps(Scope other) {
+            return MemZeroSearchCache.CacheKey.compatible(userId, other.userId())
+                    && MemZeroSearchCache.CacheKey.compatible(agentId, other.agentId())
+                    && MemZeroSearchCache.CacheKey.compatible(runId, other.runId());
+        }
+    }
+
+    /**
+     * 一次检索：documents 不为空时是本地命中的结果
+     */
+    private record Lookup(Scope scope, float[] vector, int limit, double threshold, long startNanos, List<Document> documents) {
+
+        Lookup withDocuments(List<Document> hit) {
+            return new Lookup(scope, vector, limit, threshold, startNanos, hit);
+        }
+    }
+
+    /**
+     * Mem0 为一个查询返回的结果
+     */
+    private record Cached(int limit, double threshold, List<Document> documents, long loadedNanos, long textBytes) {
+    }
+
+    /**
+     * 一个作用域缓存的查询，第 i 个查询的向量位于 vectors[i * dimensions, (i + 1) * dimensions)。
+     * 向量数组在作用域建立时分配，清空和替换时复用；只在持有 indexes 锁时访问
+     */
+    private static final class ScopeIndex {
+        private final float[] vectors;
+        private final Cached[] slots;
+        private final int dimensions;
+        private int next;
+        private long textBytes;
+        private long clearedNanos = Long.MIN_VALUE;
+
+        ScopeIndex(float[] vectors, Cached[] slots, int dimensions) {
+            this.vectors = vectors;
+            this.slots = slots;
+            this.dimensions = dimensions;
+        }
+
+        /**
+         * 与查询最相近、并且能覆盖它的 limit 和 threshold 的缓存查询，没有时返回 -1
+         */
+        int match(Lookup lookup, double minSimilarity) {
+            int best = -1;
+            double bestSimilarity = minSimilarity;
+            for (int i = 0; i < slots.length; i++) {
+                Cached cached = slots[i];
+                if (cached == null || cached.limit() < lookup.limit()
+                        || Double.compare(cached.threshold(), lookup.threshold()) != 0) {
+                    continue;
+                }
+                double similarity = similarity(lookup.vector(), i);
+                if (similarity >= bestSimilarity) {
+                    best = i;
+                    bestSimilarity = similarity;
+                }
+            }
+            return best;
+        }
+
+        Cached cached(int slot) {
+            return slots[slot];
+        }
+
+        /**
+         * 写入缓存结果，替换相近的同条件查询或轮转到下一个位置，返回增加的字节数
+         */
+        long put(Lookup lookup, Cached cached, double minSimilarity) {
+            int slot = -1;
+            for (int i = 0; i < slots.length && slot < 0; i++) {
+                if (slots[i] != null && slots[i].limit() == cached.limit()
+                        && Double.compare(slots[i].threshold(), cached.threshold()) == 0
+                        && similarity(lookup.vector(), i) >= minSimilarity) {
+                    slot = i;
+                }
+            }
+            if (slot < 0) {
+                slot = next;
+                next = (next + 1) % slots.length;
+            }
+            long delta = cached.textBytes() - (slots[slot] == null ? 0 : slots[slot].textBytes());
+            System.arraycopy(lookup.vector(), 0, vectors, slot * dimensions, dimensions);
+            slots[slot] = cached;
+            textBytes += delta;
+            return delta;
+        }
+
+        boolean contains(Set<String> ids) {
+            for (Cached cached : slots) {
+                if (cached != null && cached.documents().stream().anyMatch(document -> ids.contains(document.getId()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 清空缓存的查询，向量数组保留复用，返回释放的字节数
+         */
+        long clear(long now) {
+            Arrays.fill(slots, null);
+            next = 0;
+            clearedNanos = now;
+            long released = textBytes;
+            textBytes = 0;
+            return released;
+        }
+
+        long clearedNanos() {
+            return clearedNanos;
+        }
+
+        long vectorBytes() {
+            return (long) vectors.length * Float.BYTES;
+        }
+
+        long bytes() {
+            return vectorBytes() + textBytes;
+        }
+
+        private double similarity(float[] query, int slot) {
+            int offset = slot * dimensions;
+            double score = 0;
+            for (int d = 0; d < dimensions; d++) {
+                score += query[d] * vectors[offset + d];
+            }
+            return score;
+        }
+    }
+
+    public static class Builder {
+        private final MemZeroMemoryStore delegate;
+        private int dimensions = 256;
+        private int maxQueriesPerScope = 16;
+        private double minQuerySimilarity = 0.9;
+        private Duration staleness = Duration.ofSeconds(60);
+        private long maxMemoryBytes = 64L * 1024 * 1024;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        protected Builder(MemZeroMemoryStore delegate) {
+            this.delegate = delegate;
+        }
+
+        /** 哈希向量的维度 */
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        /** 每个作用域缓存的查询数上限 */
+        public Builder maxQueriesPerScope(int maxQueriesPerScope) {
+            this.maxQueriesPerScope = maxQueriesPerScope;
+            return this;
+        }
+
+        /** 新的查询与已缓存查询的词法余弦相似度不低于该值时复用缓存的结果 */
+        public Builder minQuerySimilarity(double minQuerySimilarity) {
+            this.minQuerySimilarity = minQuerySimilarity;
+            return this;
+        }
+
+        /** 缓存的结果可以直接回答检索的时长，超过后走 Mem0 */
+        public Builder staleness(Duration staleness) {
+            this.staleness = staleness;
+            return this;
+        }
+
+        /** 所有作用域缓存（查询向量和结果文本）的总大小上限 */
+        public Builder maxMemoryBytes(long maxMemoryBytes) {
+            this.maxMemoryBytes = maxMemoryBytes;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public MemZeroNearCacheVectorStore build() {
+            Assert.isTrue(dimensions > 0, "dimensions must be positive");
+            Assert.isTrue(maxQueriesPerScope > 0, "maxQueriesPerScope must be positive");
+            Assert.isTrue(minQuerySimilarity > 0 && minQuerySimilarity <= 1, "minQuerySimilarity must be in (0, 1]");
+            Assert.isTrue(maxMemoryBytes > 0, "maxMemoryBytes must be positive");
+            return new MemZeroNearCacheVectorStore(delegate, dimensions, maxQueriesPerScope, minQuerySimilarity, staleness,
+                    maxMemoryBytes, meterRegistry);
+        }
+    }
+}
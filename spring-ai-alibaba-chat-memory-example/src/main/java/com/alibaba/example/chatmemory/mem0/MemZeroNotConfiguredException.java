@@ -0,0 +1,13 @@
+package com.alibaba.example.chatmemory.mem0;
+
+/**
+ * 异步配置 Mem0 完成前，请求等待超时抛出的异常
+ *
+ * 按服务不可用处理（advisor 降级、write-behind 写入暂存），但不计入熔断器的失败次数。
+ */
+public class MemZeroNotConfiguredException extends MemZeroUnavailableException {
+
+    public MemZeroNotConfiguredException(String message) {
+        super(message);
+    }
+}
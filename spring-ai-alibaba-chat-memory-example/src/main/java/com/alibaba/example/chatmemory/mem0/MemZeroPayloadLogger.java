@@ -0,0 +1,143 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mem0 请求/响应报文日志
+ *
+ * 默认关闭；开启后按端点采样，报文在真正输出时才序列化（延迟格式化），且只序列化前 maxPayloadChars 个字符。
+ * 使用独立的 logger（{@code com.alibaba.example.chatmemory.mem0.payload}），可以单独调整级别和输出位置。
+ */
+public class MemZeroPayloadLogger {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.alibaba.example.chatmemory.mem0.payload");
+
+    private final boolean enabled;
+    private final int maxPayloadChars;
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates;
+    private final ObjectMapper objectMapper;
+
+    public MemZeroPayloadLogger(boolean enabled, int maxPayloadChars, double defaultSampleRate,
+                                Map<String, Double> sampleRates, ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.maxPayloadChars = maxPayloadChars;
+        this.defaultSampleRate = defaultSampleRate;
+        this.sampleRates = Map.copyOf(sampleRates);
+        this.objectMapper = objectMapper;
+    }
+
+    public static MemZeroPayloadLogger from(MemZeroChatMemoryProperties.Client client, ObjectMapper objectMapper) {
+        MemZeroChatMemoryProperties.Client.Logging logging = client.getLogging();
+        return new MemZeroPayloadLogger(logging.isEnabled(), logging.getMaxPayloadChars(),
+                logging.getDefaultSampleRate(), logging.getSampleRates(), objectMapper);
+    }
+
+    /**
+     * 按采样结果记录一次请求及其响应，未命中采样时原样返回 exchange
+     */
+    public <T> Mono<T> log(String endpoint, Object request, Mono<T> exchange) {
+        if (!enabled || !logger.isInfoEnabled()) {
+            return exchange;
+        }
+        return Mono.defer(() -> {
+            if (!sampled(endpoint)) {
+                return exchange;
+            }
+            long start = System.nanoTime();
+            if (request != null) {
+                logger.info("mem0 request endpoint={} payload={}", endpoint, new Payload(request));
+            }
+            return exchange
+                    .doOnNext(response -> logger.info("mem0 response endpoint={} elapsed_ms={} payload={}",
+                            endpoint, elapsedMillis(start), new Payload(response)))
+                    .doOnError(error -> logger.info("mem0 response endpoint={} elapsed_ms={} error={}",
+                            endpoint, elapsedMillis(start), error.toString()));
+        });
+    }
+
+    private boolean sampled(String endpoint) {
+        double rate = sampleRates.getOrDefault(endpoint, defaultSampleRate);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * 延迟序列化的报文，toString 时才写出，超过上限即停止序列化
+     */
+    private final class Payload {
+        private final Object value;
+
+        private Payload(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            BoundedWriter writer = new BoundedWriter(maxPayloadChars);
+            try {
+                objectMapper.writeValue(writer, value);
+            } catch (BoundedWriter.LimitReachedException e) {
+                return writer.toString() + "...(truncated)";
+            } catch (IOException e) {
+                return "<unserializable " + value.getClass().getSimpleName() + ">";
+            }
+            return writer.toString();
+        }
+    }
+
+    private static final class BoundedWriter extends Writer {
+        private final StringBuilder buffer = new StringBuilder();
+        private final int limit;
+
+        private BoundedWriter(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int remaining = limit - buffer.length();
+            buffer.append(chars, offset, Math.min(length, remaining));
+            if (length > remaining) {
+                throw new LimitReachedException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+
+        private static final class LimitReachedException extends IOException {
+            private LimitReachedException() {
+                super(null, null);
+            }
+
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        }
+    }
+}
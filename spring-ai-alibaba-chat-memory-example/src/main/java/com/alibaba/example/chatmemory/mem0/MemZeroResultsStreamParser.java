@@ -0,0 +1,132 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 增量解析 Mem0 的 getAll 响应
+ *
+ * 使用 Jackson 非阻塞解析器直接读取 Netty 缓冲区，每收到一段数据就输出其中已经完整的 results 元素，
+ * 不需要把整个响应聚合到内存。兼容 {"results":[...],"relations":[...]} 和顶层数组两种格式，relations 被跳过，
+ * 分页响应中的 next_cursor 在响应结束后通过 {@link #nextCursor()} 读取。
+ * 非线程安全，每个响应创建一个实例。
+ */
+class MemZeroResultsStreamParser {
+
+    private static final String RESULTS = "results";
+    private static final String NEXT_CURSOR = "next_cursor";
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    // results 数组所在的深度，-1 表示还没有进入数组
+    private int resultsDepth = -1;
+    private boolean resultsFieldSeen;
+    private boolean nextCursorFieldSeen;
+    private String nextCursor;
+    // 正在读取的数组元素
+    private TokenBuffer element;
+
+    MemZeroResultsStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * 输入一段响应数据，返回其中解析完成的记忆；buffer 在解析后释放
+     */
+    List<MemZeroServerResp.MemZeroResults> feed(DataBuffer buffer) {
+        List<MemZeroServerResp.MemZeroResults> results = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                feeder.feedInput(iterator.next());
+                drain(results);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid Mem0 memories response", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return results;
+    }
+
+    /**
+     * 响应结束，返回剩余的记忆
+     */
+    List<MemZeroServerResp.MemZeroResults> endOfInput() {
+        List<MemZeroServerResp.MemZeroResults> results = new ArrayList<>();
+        feeder.endOfInput();
+        try {
+            drain(results);
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid Mem0 memories response", e);
+        }
+        return results;
+    }
+
+    /**
+     * 下一页的游标，没有下一页或响应不是分页格式时为空
+     */
+    String nextCursor() {
+        return nextCursor;
+    }
+
+    private void drain(List<MemZeroServerResp.MemZeroResults> results) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+            }
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    if (token == JsonToken.START_ARRAY && resultsDepth < 0 && (depth == 0 || (depth == 1 && resultsFieldSeen))) {
+                        resultsDepth = depth + 1;
+                    } else if (token == JsonToken.START_OBJECT && element == null && depth == resultsDepth) {
+                        element = new TokenBuffer(objectMapper, false);
+                        element.copyCurrentEvent(parser);
+                    }
+                    depth++;
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    if (element != null && depth == resultsDepth) {
+                        results.add(objectMapper.readValue(element.asParser(objectMapper), MemZeroServerResp.MemZeroResults.class));
+                        element = null;
+                    } else if (depth + 1 == resultsDepth && token == JsonToken.END_ARRAY) {
+                        // results 数组结束，后面的 relations 等字段只做深度跟踪
+                        resultsDepth = Integer.MAX_VALUE;
+                    }
+                }
+                case FIELD_NAME -> {
+                    resultsFieldSeen = depth == 1 && RESULTS.equals(parser.currentName());
+                    nextCursorFieldSeen = depth == 1 && NEXT_CURSOR.equals(parser.currentName());
+                }
+                case VALUE_STRING -> {
+                    if (nextCursorFieldSeen && depth == 1) {
+                        nextCursor = parser.getText();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Mem0 请求重试策略
+ *
+ * 指数退避 + 抖动，只对可重试的状态码和 IO 异常重试；非幂等请求只在连接建立失败（请求未发出）时重试。
+ * 同一个客户端共享一个重试预算：每个请求存入 budgetRatio 个令牌，每次重试消耗一个，
+ * Mem0 整体变慢时重试量被限制在请求量的固定比例内，不会把服务端压垮。
+ */
+public class MemZeroRetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroRetryPolicy.class);
+
+    private final int maxAttempts;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Set<Integer> retryableStatuses;
+    private final RetryBudget budget;
+
+    public MemZeroRetryPolicy(int maxAttempts, Duration minBackoff, Duration maxBackoff, double jitter,
+                              Set<Integer> retryableStatuses, double budgetRatio, int budgetMaxTokens) {
+        this.maxAttempts = maxAttempts;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.retryableStatuses = retryableStatuses;
+        this.budget = new RetryBudget(budgetRatio, budgetMaxTokens);
+    }
+
+    public static MemZeroRetryPolicy from(MemZeroChatMemoryProperties.Client client) {
+        MemZeroChatMemoryProperties.Client.Retry retry = client.getRetry();
+        return new MemZeroRetryPolicy(client.getMaxRetryAttempts(),
+                Duration.ofMillis(retry.getMinBackoffMillis()),
+                Duration.ofMillis(retry.getMaxBackoffMillis()),
+                retry.getJitter(),
+                Set.copyOf(retry.getRetryableStatuses()),
+                retry.getBudgetRatio(),
+                retry.getBudgetMaxTokens());
+    }
+
+    /**
+     * 幂等请求（查询、更新、删除，以及携带幂等键的新增）
+     */
+    public <T> Mono<T> idempotent(Mono<T> source) {
+        return apply(source, true);
+    }
+
+    /**
+     * 非幂等请求，只在请求未发出时重试
+     */
+    public <T> Mono<T> nonIdempotent(Mono<T> source) {
+        return apply(source, false);
+    }
+
+    /**
+     * 幂等的流式请求，只在发出第一个元素之前重试，下游不会收到重复的元素
+     */
+    public <T> Flux<T> idempotentMany(Flux<T> source) {
+        return Flux.defer(() -> {
+            budget.deposit();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return source.doOnNext(value -> emitted.set(true))
+                    .retryWhen(retry(true, () -> !emitted.get()));
+        });
+    }
+
+    private <T> Mono<T> apply(Mono<T> source, boolean idempotent) {
+        Retry retry = retry(idempotent, () -> true);
+        return Mono.defer(() -> {
+            budget.deposit();
+            return source.retryWhen(retry);
+        });
+    }
+
+    private Retry retry(boolean idempotent, BooleanSupplier retryable) {
+        return Retry.backoff(maxAttempts, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(error -> retryable.getAsBoolean() && isRetryable(error, idempotent) && budget.tryAcquire())
+                .doBeforeRetry(signal -> logger.warn("Retrying Mem0 request (attempt {}): {}",
+                        signal.totalRetries() + 1, signal.failure().toString()))
+                // 保留原始异常，调用方按 WebClientResponseException 等类型处理
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    boolean isRetryable(Throwable error, boolean idempotent) {
+        if (!idempotent) {
+            return error instanceof WebClientRequestException && error.getCause() instanceof ConnectException;
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return retryableStatuses.contains(responseException.getStatusCode().value());
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
+
+    /**
+     * 令牌桶式的重试预算
+     */
+    private static final class RetryBudget {
+        private final double ratio;
+        private final int maxTokens;
+        private double tokens;
+
+        RetryBudget(double ratio, int maxTokens) {
+            this.ratio = ratio;
+            this.maxTokens = maxTokens;
+            this.tokens = maxTokens;
+        }
+
+        synchronized void deposit() {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            logger.warn("Mem0 retry budget exhausted, failing fast");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Mem0 查询结果缓存
+ *
+ * 缓存 searchMemories / getAllMemories / getMemory 的结果，按 TTL 和容量（LRU）淘汰。
+ * 写操作（add / update / delete / deleteAll）会按作用域 (user_id, agent_id, run_id) 失效相关的缓存项。
+ * 每次失效递增 epoch 并记录下来；加载开始时取得 epoch，写入缓存前如果之后有相关的失效，说明结果可能已经过时，不写入。
+ * 缓存项中出现的记忆 id 会建立到作用域的索引，update / delete 单条记忆时只失效它所在的作用域。
+ * 缓存中保存的是副本，每次命中也返回副本。
+ */
+public class MemZeroSearchCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+    // 记忆 id -> 所在作用域，以及引用它的缓存项数量
+    private final Map<String, IndexEntry> memoryIndex = new HashMap<>();
+    // 最近 ttl 内的失效记录，按 epoch 递增
+    private final Deque<Invalidation> invalidations = new ArrayDeque<>();
+    private long epoch;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter sizeEvictionCounter;
+    private final Counter expiredEvictionCounter;
+    private final Counter invalidationCounter;
+    private final Counter stalePutCounter;
+
+    public MemZeroSearchCache(int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        // accessOrder = true，实现 LRU
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > MemZeroSearchCache.this.maxSize) {
+                    MemZeroSearchCache.this.sizeEvictionCounter.increment();
+                    unindex(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hitCounter = requestCounter(meterRegistry, "hit");
+        this.missCounter = requestCounter(meterRegistry, "miss");
+        this.sizeEvictionCounter = evictionCounter(meterRegistry, "size");
+        this.expiredEvictionCounter = evictionCounter(meterRegistry, "expired");
+        this.invalidationCounter = evictionCounter(meterRegistry, "invalidated");
+        this.stalePutCounter = Counter.builder("mem0.cache.stale.puts")
+                .description("Mem0 responses not cached because a write invalidated them while loading")
+                .register(meterRegistry);
+        Gauge.builder("mem0.cache.size", this, MemZeroSearchCache::size)
+                .description("Number of Mem0 responses held in the client cache")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("mem0.cache.requests")
+                .description("Mem0 client cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("mem0.cache.evictions")
+                .description("Mem0 client cache evictions")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 命中则直接返回缓存的副本，否则订阅 loader 并缓存其结果
+     */
+    public Mono<MemZeroServerResp> get(CacheKey key, Supplier<Mono<MemZeroServerResp>> loader) {
+        return Mono.defer(() -> {
+            MemZeroServerResp cached = lookup(key);
+            if (cached != null) {
+                hitCounter.increment();
+                return Mono.just(cached.copy());
+            }
+            missCounter.increment();
+            long loadEpoch = currentEpoch();
+            long loadNanos = System.nanoTime();
+            return loader.get().doOnNext(value -> put(key, value, loadEpoch, loadNanos));
+        });
+    }
+
+    private synchronized long currentEpoch() {
+        return epoch;
+    }
+
+    private synchronized MemZeroServerResp lookup(CacheKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdNanos() > ttlNanos) {
+            entries.remove(key);
+            unindex(entry);
+            expiredEvictionCounter.increment();
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * 写入加载结果；加载开始后有相关的失效时丢弃。过期时间从加载开始算起
+     */
+    private synchronized void put(CacheKey key, MemZeroServerResp value, long loadEpoch, long loadNanos) {
+        if (System.nanoTime() - loadNanos > ttlNanos) {
+            return;
+        }
+        Iterator<Invalidation> newest = invalidations.descendingIterator();
+        while (newest.hasNext()) {
+            Invalidation invalidation = newest.next();
+            if (invalidation.epoch() <= loadEpoch) {
+                break;
+            }
+            if (invalidation.affects(key, value)) {
+                stalePutCounter.increment();
+                return;
+            }
+        }
+        CacheEntry entry = new CacheEntry(key, value.copy(), loadNanos);
+        CacheEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(entry);
+    }
+
+    /**
+     * 失效与该作用域可能重叠的缓存项：任一 id 同时存在但不相等时才认为不相关
+     */
+    public synchronized void invalidateScope(String userId, String agentId, String runId) {
+        Scope scope = new Scope(userId, agentId, runId);
+        logInvalidation(new Invalidation(++epoch, System.nanoTime(), null, scope, false));
+        removeScope(scope);
+    }
+
+    /**
+     * 失效该记忆和它所在作用域的缓存项；没有缓存项引用该记忆时只失效它自己的 getMemory 缓存
+     */
+    public synchronized void invalidateMemory(String memoryId) {
+        IndexEntry indexed = memoryIndex.get(memoryId);
+        Scope scope = indexed == null ? null : indexed.scope();
+        logInvalidation(new Invalidation(++epoch, System.nanoTime(), memoryId, scope, false));
+        CacheEntry memoryEntry = entries.remove(CacheKey.memory(memoryId));
+        if (memoryEntry != null) {
+            unindex(memoryEntry);
+            invalidationCounter.increment();
+        }
+        if (scope != null) {
+            removeScope(scope);
+        }
+    }
+
+    public synchronized void clear() {
+        logInvalidation(new Invalidation(++epoch, System.nanoTime(), null, null, true));
+        invalidationCounter.increment(entries.size());
+        entries.clear();
+        memoryIndex.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void removeScope(Scope scope) {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            if (entry.overlaps(scope)) {
+                iterator.remove();
+                unindex(entry);
+                invalidationCounter.increment();
+            }
+        }
+    }
+
+    private void logInvalidation(Invalidation invalidation) {
+        invalidations.addLast(invalidation);
+        // 超过 ttl 的加载结果不会写入缓存，更早的失效记录不再需要
+        while (invalidation.nanos() - invalidations.peekFirst().nanos() > ttlNanos) {
+            invalidations.pollFirst();
+        }
+    }
+
+    private void index(CacheEntry entry) {
+        for (MemZeroServerResp.MemZeroResults result : results(entry.value())) {
+            if (result.getId() != null) {
+                memoryIndex.compute(result.getId(), (id, indexed) -> indexed == null
+                        ? new IndexEntry(Scope.of(result), 1)
+                        : new IndexEntry(indexed.scope(), indexed.references() + 1));
+            }
+        }
+    }
+
+    private void unindex(CacheEntry entry) {
+        for (MemZeroServerResp.MemZeroResults result : results(entry.value())) {
+            if (result.getId() != null) {
+                memoryIndex.computeIfPresent(result.getId(), (id, indexed) -> indexed.references() <= 1
+                        ? null
+                        : new IndexEntry(indexed.scope(), indexed.references() - 1));
+            }
+        }
+    }
+
+    private static List<MemZeroServerResp.MemZeroResults> results(MemZeroServerResp value) {
+        return value == null || value.getResults() == null ? List.of() : value.getResults();
+    }
+
+    private record CacheEntry(CacheKey key, MemZeroServerResp value, long createdNanos) {
+
+        /**
+         * getMemory 的缓存项按记忆本身的作用域判断，其余按 key 的作用域判断
+         */
+        boolean overlaps(Scope scope) {
+            if (key.memoryId() == null) {
+                return key.overlaps(scope.userId(), scope.agentId(), scope.runId());
+            }
+            for (MemZeroServerResp.MemZeroResults result : results(value)) {
+                if (Scope.of(result).overlaps(scope)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record IndexEntry(Scope scope, int references) {
+    }
+
+    private record Scope(String userId, String agentId, String runId) {
+
+        static Scope of(MemZeroServerResp.MemZeroResults result) {
+            return new Scope(result.getUserId(), result.getAgentId(), result.getRunId());
+        }
+
+        boolean overlaps(Scope other) {
+            return CacheKey.compatible(userId, other.userId()) && CacheKey.compatible(agentId, other.agentId())
+                    && CacheKey.compatible(runId, other.runId());
+        }
+    }
+
+    /**
+     * 一次失效：memoryId 不为空时是单条记忆，scope 为空且 all 为 false 时作用域未知
+     */
+    private record Invalidation(long epoch, long nanos, String memoryId, Scope scope, boolean all) {
+
+        boolean affects(CacheKey key, MemZeroServerResp value) {
+            if (all) {
+                return true;
+            }
+            if (memoryId != null) {
+                if (memoryId.equals(key.memoryId())) {
+                    return true;
+                }
+                for (MemZeroServerResp.MemZeroResults result : results(value)) {
+                    if (memoryId.equals(result.getId())) {
+                        return true;
+                    }
+                }
+            }
+            return scope != null && new CacheEntry(key, value, 0).overlaps(scope);
+        }
+    }
+
+    /**
+     * 规范化后的缓存 key
+     */
+    public record CacheKey(String endpoint, String memoryId, String query, String userId, String agentId, String runId,
+                           Map<String, Object> filters, Integer limit) {
+
+        static CacheKey search(MemZeroServerRequest.SearchRequest request) {
+            return new CacheKey("search", null, request.getQuery().trim(), request.getUserId(), request.getAgentId(),
+                    request.getRunId(), request.getFilters() == null ? Map.of() : new HashMap<>(request.getFilters()),
+                    request.getLimit());
+        }
+
+        static CacheKey all(String userId, String runId, String agentId) {
+            return all(userId, runId, agentId, null);
+        }
+
+        static CacheKey all(String userId, String runId, String agentId, Integer limit) {
+            return new CacheKey("memories", null, null, userId, agentId, runId, Map.of(), limit);
+        }
+
+        static CacheKey memory(String memoryId) {
+            return new CacheKey("memory", memoryId, null, null, null, null, Map.of(), null);
+        }
+
+        boolean overlaps(String otherUserId, String otherAgentId, String otherRunId) {
+            if (memoryId != null) {
+                return false;
+            }
+            return compatible(userId, otherUserId) && compatible(agentId, otherAgentId) && compatible(runId, otherRunId);
+        }
+
+        static boolean compatible(String left, String right) {
+            return left == null || right == null || left.equals(right);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步配置 Mem0 服务
+ *
+ * 应用上下文刷新完成后在后台调用 /configure，失败时指数退避重试，启动不再等待 Mem0 初始化向量库、图数据库和 LLM。
+ * 配置完成前，客户端的其他请求最多等待 requestWait，超时后抛出 {@link MemZeroNotConfiguredException}，
+ * advisor 按降级处理、write-behind 暂存写入；就绪状态通过 {@link MemZeroHealthIndicator} 暴露给 readiness 探针。
+ */
+public class MemZeroServerInitializer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroServerInitializer.class);
+
+    public enum State {
+        /** 尚未开始 */
+        PENDING,
+        /** 正在配置（包含重试） */
+        CONFIGURING,
+        /** 配置完成 */
+        READY,
+        /** 重试次数用尽 */
+        FAILED
+    }
+
+    private final ReactiveMemZeroServiceClient client;
+    private final MemZeroChatMemoryProperties.Server server;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    // 小于等于 0 表示一直重试
+    private final long maxAttempts;
+    private final Duration requestWait;
+
+    private final Sinks.Empty<Void> ready = Sinks.empty();
+    private final AtomicLong attempts = new AtomicLong();
+    private volatile State state = State.PENDING;
+    private volatile Throwable lastError;
+    private volatile Disposable subscription;
+
+    public MemZeroServerInitializer(ReactiveMemZeroServiceClient client, MemZeroChatMemoryProperties.Server server,
+                                    Duration minBackoff, Duration maxBackoff, long maxAttempts, Duration requestWait) {
+        this.client = client;
+        this.server = server;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.requestWait = requestWait;
+        client.setReadinessGate(Mono.defer(this::awaitReady));
+    }
+
+    public static MemZeroServerInitializer from(ReactiveMemZeroServiceClient client, MemZeroChatMemoryProperties properties) {
+        MemZeroChatMemoryProperties.Client.Startup startup = properties.getClient().getStartup();
+        return new MemZeroServerInitializer(client, properties.getServer(),
+                Duration.ofMillis(startup.getMinBackoffMillis()),
+                Duration.ofMillis(startup.getMaxBackoffMillis()),
+                startup.getMaxAttempts(),
+                Duration.ofMillis(startup.getRequestWaitMillis()));
+    }
+
+    private Mono<Void> awaitReady() {
+        State current = this.state;
+        if (current == State.READY) {
+            return Mono.empty();
+        }
+        if (current == State.FAILED || requestWait.isZero()) {
+            return Mono.error(notConfigured());
+        }
+        return ready.asMono().timeout(requestWait, Mono.error(this::notConfigured));
+    }
+
+    private MemZeroNotConfiguredException notConfigured() {
+        return new MemZeroNotConfiguredException("Mem0 server is not configured yet (" + state + ")");
+    }
+
+    @Override
+    public void start() {
+        state = State.CONFIGURING;
+        Retry retry = Retry.backoff(maxAttempts > 0 ? maxAttempts - 1 : Long.MAX_VALUE, minBackoff)
+                .maxBackoff(maxBackoff)
+                .doBeforeRetry(signal -> {
+                    lastError = signal.failure();
+                    logger.warn("Failed to configure Mem0 (attempt {}), retrying: {}", attempts.get(), signal.failure().getMessage());
+                });
+        subscription = client.configure(server)
+                .doOnSubscribe(s -> attempts.incrementAndGet())
+                .retryWhen(retry)
+                .subscribe(null, error -> {
+                    lastError = error;
+                    state = State.FAILED;
+                    logger.error("Giving up configuring Mem0 after {} attempts: {}", attempts.get(), error.getMessage());
+                    ready.tryEmitError(error);
+                }, () -> {
+                    lastError = null;
+                    state = State.READY;
+                    logger.info("Mem0 server configured after {} attempt(s)", attempts.get());
+                    ready.tryEmitEmpty();
+                });
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Disposable current = subscription;
+        return current != null && !current.isDisposed();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public Throwable getLastError() {
+        return lastError;
+    }
+}
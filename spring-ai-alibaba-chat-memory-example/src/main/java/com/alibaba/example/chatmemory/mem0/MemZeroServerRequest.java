@@ -1,5 +1,6 @@
 package com.alibaba.example.chatmemory.mem0;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
@@ -7,6 +8,7 @@ import org.springframework.ai.vectorstore.VectorStore;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public class MemZeroServerRequest {
     
@@ -73,6 +75,10 @@ public class MemZeroServerRequest {
         private String runId;
         
         private Map<String, Object> metadata;
+
+        // 通过 Idempotency-Key 请求头发送，同一个 MemoryCreate 重试时保持不变
+        @JsonIgnore
+        private String idempotencyKey = UUID.randomUUID().toString();
         
         public MemoryCreate() {}
 
@@ -82,6 +88,9 @@ public class MemZeroServerRequest {
             setAgentId(builder.agentId);
             setRunId(builder.runId);
             setMetadata(builder.metadata);
+            if (builder.idempotencyKey != null) {
+                setIdempotencyKey(builder.idempotencyKey);
+            }
         }
 
         public List<Message> getMessages() { return messages; }
@@ -99,6 +108,9 @@ public class MemZeroServerRequest {
         public Map<String, Object> getMetadata() { return metadata; }
         public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
 
+        public String getIdempotencyKey() { return idempotencyKey; }
+        public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
         public static Builder builder() {
             return new Builder();
         }
@@ -109,6 +121,7 @@ public class MemZeroServerRequest {
             private String agentId;
             private String runId;
             private Map<String, Object> metadata;
+            private String idempotencyKey;
 
             private Builder() {
             }
@@ -142,6 +155,11 @@ public class MemZeroServerRequest {
                 return this;
             }
 
+            public Builder idempotencyKey(String val) {
+                idempotencyKey = val;
+                return this;
+            }
+
             public MemoryCreate build() {
                 return new MemoryCreate(this);
             }
@@ -161,6 +179,9 @@ public class MemZeroServerRequest {
         private String agentId;
         
         private Map<String, Object> filters;
+
+        // 返回结果的最大数量，为空时使用 Mem0 服务端默认值 100
+        private Integer limit;
         
         public SearchRequest() {}
 
@@ -170,6 +191,7 @@ public class MemZeroServerRequest {
             this.userId = builder.userId;
             this.runId = builder.runId;
             this.filters = builder.filters;
+            this.limit = builder.limit;
         }
 
         @Override
@@ -190,6 +212,9 @@ public class MemZeroServerRequest {
         public Map<String, Object> getFilters() { return filters; }
         public void setFilters(Map<String, Object> filters) { this.filters = filters; }
 
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+
         public static Builder builder() {
             return new Builder();
         }
@@ -200,6 +225,7 @@ public class MemZeroServerRequest {
             private String runId;
             private String agentId;
             private Map<String, Object> filters;
+            private Integer limit;
 
             public Builder query(String val) {
                 query = val;
@@ -226,6 +252,11 @@ public class MemZeroServerRequest {
                 return this;
             }
 
+            public Builder limit(Integer val) {
+                limit = val;
+                return this;
+            }
+
             public SearchRequest build() {
                 return new SearchRequest(this);
             }
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,10 @@ public class MemZeroServerResp {
     // 关系数据
     private List<MemZeroRelation> relations;
 
+    // 分页读取时下一页的游标，没有下一页时为空
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
     public MemZeroServerResp() {
         this.relations = new ArrayList<>();
         this.results = new ArrayList<>();
@@ -41,6 +46,38 @@ public class MemZeroServerResp {
         this.relations = relations;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 深拷贝，缓存命中时返回副本，调用方修改结果不会影响缓存
+     */
+    public MemZeroServerResp copy() {
+        List<MemZeroResults> resultsCopy = null;
+        if (results != null) {
+            resultsCopy = new ArrayList<>(results.size());
+            for (MemZeroResults result : results) {
+                resultsCopy.add(result == null ? null : result.copy());
+            }
+        }
+        List<MemZeroRelation> relationsCopy = null;
+        if (relations != null) {
+            relationsCopy = new ArrayList<>(relations.size());
+            for (MemZeroRelation relation : relations) {
+                relationsCopy.add(relation == null ? null
+                        : new MemZeroRelation(relation.getSource(), relation.getRelationship(), relation.getTarget(), relation.getDestination()));
+            }
+        }
+        MemZeroServerResp copy = new MemZeroServerResp(resultsCopy, relationsCopy);
+        copy.setNextCursor(nextCursor);
+        return copy;
+    }
+
     /**
      * Mem0 关系数据模型
      * 对应 Mem0 服务返回的 relations 数组中的每个关系对象
@@ -238,6 +275,13 @@ public class MemZeroServerResp {
             this.role = role;
         }
 
+        MemZeroResults copy() {
+            MemZeroResults copy = new MemZeroResults(id, memory, hash, metadata == null ? null : new HashMap<>(metadata),
+                    userId, createdAt, updatedAt, agentId, runId, score, role);
+            copy.setRole(role);
+            return copy;
+        }
+
         @Override
         public String toString() {
             return "MemZeroResults{" +
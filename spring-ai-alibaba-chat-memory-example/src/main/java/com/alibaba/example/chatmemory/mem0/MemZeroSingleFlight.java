@@ -0,0 +1,73 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同的并发请求（single-flight）
+ *
+ * 同一个 key 的请求还在进行中时，后来的调用方直接订阅这次请求的结果，不再向 Mem0 发起新的请求；
+ * 请求结束（成功、失败或所有订阅方都取消）后移除，之后的调用重新发起请求。
+ */
+public class MemZeroSingleFlight {
+
+    private final Map<MemZeroSearchCache.CacheKey, Mono<MemZeroServerResp>> inFlight = new ConcurrentHashMap<>();
+    // 每个 endpoint 一个计数器，不在每次合并时注册
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public MemZeroSingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Mono<MemZeroServerResp> execute(MemZeroSearchCache.CacheKey key, Supplier<Mono<MemZeroServerResp>> loader) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<MemZeroServerResp>> created = new AtomicReference<>();
+            Mono<MemZeroServerResp> flight = inFlight.computeIfAbsent(key, k -> {
+                Mono<MemZeroServerResp> shared = Mono.defer(loader)
+                        .doFinally(signal -> inFlight.remove(k, created.get()))
+                        .share();
+                created.set(shared);
+                return shared;
+            });
+            if (flight != created.get()) {
+                coalescedCounter(key.endpoint()).increment();
+                // 发起方拿到的是原始结果，合并进来的调用方各自拿副本
+                return flight.map(MemZeroServerResp::copy);
+            }
+            return flight;
+        });
+    }
+
+    /**
+     * 写操作之后，与该作用域可能重叠的进行中请求不再被合并，之后的调用重新发起请求；
+     * getMemory 请求无法判断作用域，一并移除
+     */
+    public void invalidateScope(String userId, String agentId, String runId) {
+        inFlight.keySet().removeIf(key -> key.memoryId() != null || key.overlaps(userId, agentId, runId));
+    }
+
+    public void invalidateAll() {
+        inFlight.clear();
+    }
+
+    /**
+     * 正在进行中的请求数
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private Counter coalescedCounter(String endpoint) {
+        return coalescedCounters.computeIfAbsent(endpoint, key -> Counter.builder("mem0.client.coalesced")
+                .description("Mem0 requests served by an identical in-flight request")
+                .tag("endpoint", key)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,13 @@
+package com.alibaba.example.chatmemory.mem0;
+
+/**
+ * Mem0 服务不可用（熔断器打开）时快速失败抛出的异常
+ *
+ * 熔断期间每个请求都会产生该异常，不记录堆栈以降低开销。
+ */
+public class MemZeroUnavailableException extends RuntimeException {
+
+    public MemZeroUnavailableException(String message) {
+        super(message, null, false, false);
+    }
+}
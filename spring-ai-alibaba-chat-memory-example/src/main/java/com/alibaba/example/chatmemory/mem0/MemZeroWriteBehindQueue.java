@@ -0,0 +1,356 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties.Client.WriteBehind.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Mem0 异步写入队列（write-behind）
+ *
+ * Mem0 的 add 接口会调用 LLM 做事实抽取，耗时在秒级。{@link MemZeroMemoryStore#add} 只负责入队，
+ * 由后台 worker 线程调用 {@link MemZeroServiceClient#addMemory} 持久化，Advisor 的 before/after 可以立即返回。
+ * 队列按作用域 (user_id, agent_id, run_id) 的哈希分片，每个分片只由一个 worker 按顺序写入，同一作用域内的写入不会乱序。
+ * 队列有界，满时按 {@link OverflowPolicy} 处理，提交方不会执行 Mem0 调用；容器关闭时会在超时时间内尽量把队列中的记忆写完，
+ * 关闭后提交的记忆直接丢弃。
+ * Mem0 不可用（熔断、5xx、连接失败）导致写入失败的记忆会暂存在有界的 spool 中，由后台线程定期按暂存顺序补写。
+ * 作用域在 spool 中还有记忆时，该作用域之后的写入也进入 spool 排在它们后面，补写后才恢复正常写入，因此补写不会改变同一作用域的顺序；
+ * spool 满时丢弃最早的记忆。容器关闭时在同一个超时时间内尽量补写 spool 中的记忆。
+ */
+public class MemZeroWriteBehindQueue implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemZeroWriteBehindQueue.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final MemZeroServiceClient mem0Client;
+    // 每个分片对应一个 worker 线程
+    private final List<BlockingQueue<PendingWrite>> shards;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration blockTimeout;
+    private final Duration shutdownTimeout;
+    private final ExecutorService workers;
+    private final Deque<PendingWrite> spool = new ArrayDeque<>();
+    // 每个作用域在 spool 中的记忆数量
+    private final Map<Scope, Integer> spooledScopes = new HashMap<>();
+    private final int spoolCapacity;
+    private final ScheduledExecutorService spoolReplayer;
+    private final List<Consumer<MemZeroServerRequest.MemoryCreate>> persistListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    private final Timer lagTimer;
+    private final Counter persistedCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+    private final Counter spooledCounter;
+
+    public MemZeroWriteBehindQueue(MemZeroServiceClient mem0Client, int queueCapacity, int concurrency,
+                                   OverflowPolicy overflowPolicy, Duration shutdownTimeout, MeterRegistry meterRegistry) {
+        this(mem0Client, queueCapacity, concurrency, overflowPolicy, Duration.ofSeconds(1), shutdownTimeout,
+                0, Duration.ofSeconds(30), meterRegistry);
+    }
+
+    /**
+     * @param queueCapacity 所有分片的总容量，平均分给 concurrency 个分片
+     */
+    public MemZeroWriteBehindQueue(MemZeroServiceClient mem0Client, int queueCapacity, int concurrency,
+                                   OverflowPolicy overflowPolicy, Duration blockTimeout, Duration shutdownTimeout,
+                                   int spoolCapacity, Duration spoolReplayInterval, MeterRegistry meterRegistry) {
+        this.mem0Client = mem0Client;
+        this.shards = new ArrayList<>(concurrency);
+        int shardCapacity = Math.max(1, queueCapacity / concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            this.shards.add(new ArrayBlockingQueue<>(shardCapacity));
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeout = blockTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.spoolCapacity = spoolCapacity;
+
+        Gauge.builder("mem0.writebehind.queue.depth", this, MemZeroWriteBehindQueue::size)
+                .description("Number of memories waiting to be written to Mem0")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("mem0.writebehind.lag")
+                .description("Time from enqueue until the memory is persisted in Mem0")
+                .register(meterRegistry);
+        this.persistedCounter = writesCounter(meterRegistry, "success");
+        this.failedCounter = writesCounter(meterRegistry, "failure");
+        this.droppedCounter = writesCounter(meterRegistry, "dropped");
+        this.spooledCounter = writesCounter(meterRegistry, "spooled");
+        Gauge.builder("mem0.writebehind.spool.size", this, MemZeroWriteBehindQueue::spoolSize)
+                .description("Number of memories spooled while Mem0 is unavailable")
+                .register(meterRegistry);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mem0-write-behind-");
+        threadFactory.setDaemon(true);
+        this.workers = Executors.newFixedThreadPool(concurrency, threadFactory);
+        for (BlockingQueue<PendingWrite> shard : this.shards) {
+            this.workers.execute(() -> drain(shard));
+        }
+
+        CustomizableThreadFactory replayThreadFactory = new CustomizableThreadFactory("mem0-write-behind-replay-");
+        replayThreadFactory.setDaemon(true);
+        this.spoolReplayer = Executors.newSingleThreadScheduledExecutor(replayThreadFactory);
+        long replayMillis = spoolReplayInterval.toMillis();
+        this.spoolReplayer.scheduleWithFixedDelay(() -> replaySpool(Long.MAX_VALUE), replayMillis, replayMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter writesCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("mem0.writebehind.writes")
+                .description("Memories handled by the Mem0 write-behind queue")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交一条待写入的记忆，正常情况下立即返回
+     */
+    public void submit(MemZeroServerRequest.MemoryCreate memoryCreate) {
+        PendingWrite write = new PendingWrite(memoryCreate, System.nanoTime());
+        if (!running) {
+            // 已经关闭，不在调用线程上同步写入
+            droppedCounter.increment();
+            logger.warn("Write-behind queue is shut down, dropped memory for user_id={}, agent_id={}, run_id={}",
+                    memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId());
+            return;
+        }
+        BlockingQueue<PendingWrite> queue = shard(memoryCreate);
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(write, blockTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                        drop(write);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(write);
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!queue.offer(write)) {
+                    drop(write);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(write)) {
+                    PendingWrite oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+            }
+        }
+    }
+
+    private BlockingQueue<PendingWrite> shard(MemZeroServerRequest.MemoryCreate memoryCreate) {
+        int hash = Objects.hash(memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId());
+        return shards.get(Math.floorMod(hash, shards.size()));
+    }
+
+    /**
+     * 注册写入成功后的回调，在后台写入线程上执行
+     */
+    public void addPersistListener(Consumer<MemZeroServerRequest.MemoryCreate> listener) {
+        persistListeners.add(listener);
+    }
+
+    /**
+     * 当前排队中的记忆数量
+     */
+    public int size() {
+        int size = 0;
+        for (BlockingQueue<PendingWrite> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * 当前因 Mem0 不可用而暂存的记忆数量
+     */
+    public synchronized int spoolSize() {
+        return spool.size();
+    }
+
+    private void drain(BlockingQueue<PendingWrite> queue) {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite write = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (write != null) {
+                    persist(write);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void persist(PendingWrite write) {
+        // 作用域还有暂存的记忆时排到它们后面，保证同一作用域按提交顺序写入
+        if (spoolCapacity > 0 && spoolIfHeld(write)) {
+            return;
+        }
+        if (!write(write)) {
+            spool(write);
+        }
+    }
+
+    /**
+     * 写入 Mem0，因 Mem0 不可用而需要暂存时返回 false
+     */
+    private boolean write(PendingWrite write) {
+        try {
+            mem0Client.addMemory(write.memoryCreate());
+            persistedCounter.increment();
+            notifyPersisted(write.memoryCreate());
+            return true;
+        } catch (Exception e) {
+            if (spoolCapacity > 0 && MemZeroCircuitBreaker.isUnavailable(e)) {
+                return false;
+            }
+            // MemZeroServiceClient 已经记录了详细错误，这里只统计
+            failedCounter.increment();
+            logger.warn("Write-behind failed to persist memory for user_id={}, agent_id={}, run_id={}",
+                    write.memoryCreate().getUserId(), write.memoryCreate().getAgentId(), write.memoryCreate().getRunId());
+            return true;
+        } finally {
+            lagTimer.record(System.nanoTime() - write.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void notifyPersisted(MemZeroServerRequest.MemoryCreate memoryCreate) {
+        for (Consumer<MemZeroServerRequest.MemoryCreate> listener : persistListeners) {
+            try {
+                listener.accept(memoryCreate);
+            } catch (Exception e) {
+                logger.warn("Write-behind persist listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized boolean spoolIfHeld(PendingWrite write) {
+        if (!spooledScopes.containsKey(Scope.of(write.memoryCreate()))) {
+            return false;
+        }
+        spool(write);
+        return true;
+    }
+
+    private synchronized void spool(PendingWrite write) {
+        if (spool.size() >= spoolCapacity) {
+            PendingWrite oldest = spool.pollFirst();
+            release(oldest);
+            droppedCounter.increment();
+            logger.warn("Write-behind spool is full ({}), dropped memory for user_id={}, agent_id={}, run_id={}",
+                    spoolCapacity, oldest.memoryCreate().getUserId(), oldest.memoryCreate().getAgentId(), oldest.memoryCreate().getRunId());
+        }
+        spool.addLast(write);
+        spooledScopes.merge(Scope.of(write.memoryCreate()), 1, Integer::sum);
+        spooledCounter.increment();
+    }
+
+    private synchronized PendingWrite peekSpool() {
+        return spool.peekFirst();
+    }
+
+    // 补写完成后才移出 spool，补写期间该作用域的新写入继续排在 spool 中
+    private synchronized void unspool(PendingWrite write) {
+        // 补写期间 spool 满时可能已经被丢弃
+        if (spool.peekFirst() == write) {
+            spool.pollFirst();
+            release(write);
+        }
+    }
+
+    private void release(PendingWrite write) {
+        spooledScopes.computeIfPresent(Scope.of(write.memoryCreate()), (scope, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 按暂存顺序把 spool 中的记忆写入 Mem0，Mem0 仍不可用或超时后留到下一轮；只在补写线程或关闭时调用，同一时间只有一个线程补写
+     */
+    private void replaySpool(long timeoutNanos) {
+        long start = System.nanoTime();
+        int replayed = 0;
+        PendingWrite write;
+        while ((write = peekSpool()) != null && System.nanoTime() - start < timeoutNanos) {
+            if (!write(write)) {
+                break;
+            }
+            unspool(write);
+            replayed++;
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} spooled memories to Mem0, {} still spooled", replayed, spoolSize());
+        }
+    }
+
+    private void drop(PendingWrite write) {
+        droppedCounter.increment();
+        logger.warn("Write-behind queue is full ({}), dropped memory for user_id={}, agent_id={}, run_id={}",
+                overflowPolicy, write.memoryCreate().getUserId(), write.memoryCreate().getAgentId(), write.memoryCreate().getRunId());
+    }
+
+    /**
+     * 停止接收新的记忆，并在超时时间内把队列中剩余的记忆写入 Mem0
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        // 不再定期补写，正在进行的一轮补写会执行完
+        spoolReplayer.shutdown();
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            int remaining = size();
+            workers.shutdownNow();
+            logger.warn("Write-behind queue did not flush within {}, {} memories were not persisted", shutdownTimeout, remaining);
+        } else {
+            logger.info("Write-behind queue flushed");
+        }
+        // 队列写完后 spool 不会再增加，在剩余时间内补写
+        if (spoolReplayer.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            replaySpool(deadline - System.nanoTime());
+        } else {
+            spoolReplayer.shutdownNow();
+        }
+        int spooled = spoolSize();
+        if (spooled > 0) {
+            logger.warn("{} spooled memories were not persisted within {}", spooled, shutdownTimeout);
+        }
+    }
+
+    private record Scope(String userId, String agentId, String runId) {
+
+        static Scope of(MemZeroServerRequest.MemoryCreate memoryCreate) {
+            return new Scope(memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId());
+        }
+    }
+
+    private record PendingWrite(MemZeroServerRequest.MemoryCreate memoryCreate, long enqueuedNanos) {
+    }
+}
@@ -0,0 +1,716 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Mem0 API 响应式客户端实现
+ *
+ * 所有方法返回 Mono/Flux，不阻塞调用线程，WebFlux 调用方与 Advisor 可以直接组合使用。
+ * 请求和响应体由 WebClient 的 Jackson 编解码器直接在 Netty 缓冲区与对象之间转换，不经过中间 String。
+ * 阻塞式的 {@link MemZeroServiceClient} 委托给本类实现。
+ * 参考文档: http://localhost:8888/docs
+ */
+public class ReactiveMemZeroServiceClient implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMemZeroServiceClient.class);
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final ObjectMapper objectMapper;
+    private final MemZeroChatMemoryProperties config;
+    private final ResourceLoader resourceLoader;
+    // 未开启缓存时为空
+    private final MemZeroSearchCache cache;
+    private final MemZeroRetryPolicy retryPolicy;
+    private final MemZeroCircuitBreaker circuitBreaker;
+    private final MemZeroPayloadLogger payloadLogger;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary searchResultsSummary;
+    // 按端点、方法、结果和状态码缓存的请求耗时 Timer，请求路径上不再查找注册表
+    private final Map<RequestTimerKey, Timer> requestTimers = new ConcurrentHashMap<>();
+    // 未开启请求合并时为空
+    private final MemZeroSingleFlight singleFlight;
+    // 为空时请求直接发出，见 setReadinessGate
+    private volatile Mono<Void> readinessGate;
+
+    // Mem0 API 端点
+    private static final String CONFIGURE_ENDPOINT = "/configure";
+    private static final String MEMORIES_ENDPOINT = "/memories";
+    private static final String SEARCH_ENDPOINT = "/search";
+    private static final String RESET_ENDPOINT = "/reset";
+    private static final String HISTORY_ENDPOINT = "/history";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final String REQUESTS_TIMER = "mem0.client.requests";
+
+    /**
+     * 构造函数，按 mem0.client.enable-cache 决定是否开启查询缓存
+     */
+    public ReactiveMemZeroServiceClient(MemZeroChatMemoryProperties config, ResourceLoader resourceLoader) {
+        this(config, resourceLoader, config.getClient().isEnableCache()
+                ? new MemZeroSearchCache(config.getClient().getCacheMaxSize(),
+                        Duration.ofSeconds(config.getClient().getCacheTtlSeconds()), Metrics.globalRegistry)
+                : null);
+    }
+
+    public ReactiveMemZeroServiceClient(MemZeroChatMemoryProperties config, ResourceLoader resourceLoader, MemZeroSearchCache cache) {
+        this(config, resourceLoader, cache, MemZeroCircuitBreaker.from(config.getClient(), Metrics.globalRegistry),
+                Metrics.globalRegistry);
+    }
+
+    public ReactiveMemZeroServiceClient(MemZeroChatMemoryProperties config, ResourceLoader resourceLoader, MemZeroSearchCache cache,
+                                        MemZeroCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.resourceLoader = resourceLoader;
+        this.cache = cache;
+        this.retryPolicy = MemZeroRetryPolicy.from(config.getClient());
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.singleFlight = config.getClient().isCoalesceRequests() ? new MemZeroSingleFlight(meterRegistry) : null;
+        this.searchResultsSummary = DistributionSummary.builder("mem0.client.search.results")
+                .description("Number of memories returned by a Mem0 search")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (String[] endpointAndMethod : new String[][]{
+                {CONFIGURE_ENDPOINT, "POST"}, {MEMORIES_ENDPOINT, "POST"}, {MEMORIES_ENDPOINT, "GET"},
+                {SEARCH_ENDPOINT, "POST"}, {MEMORIES_ENDPOINT, "PUT"}, {HISTORY_ENDPOINT, "GET"},
+                {MEMORIES_ENDPOINT, "DELETE"}, {RESET_ENDPOINT, "POST"}}) {
+            requestTimer(new RequestTimerKey(endpoint(endpointAndMethod[0]), endpointAndMethod[1], "success", "2xx"));
+        }
+        this.objectMapper = createObjectMapper();
+        this.payloadLogger = MemZeroPayloadLogger.from(config.getClient(), objectMapper);
+
+        // 创建 WebClient 连接到 Mem0 API，使用独立的连接池
+        MemZeroChatMemoryProperties.Client.Http http = config.getClient().getHttp();
+        this.connectionProvider = ConnectionProvider.builder("mem0")
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(http.getPendingAcquireTimeoutMillis()))
+                .maxIdleTime(Duration.ofSeconds(http.getMaxIdleTimeSeconds()))
+                .maxLifeTime(Duration.ofSeconds(http.getMaxLifeTimeSeconds()))
+                .evictInBackground(Duration.ofSeconds(http.getEvictInBackgroundSeconds()))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, http.getConnectTimeoutMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                // 发送 Accept-Encoding: gzip 并自动解压响应
+                .compress(http.isCompression())
+                .responseTimeout(Duration.ofSeconds(http.getReadTimeoutSeconds()))
+                .doOnConnected(connection -> connection.addHandlerLast(
+                        new WriteTimeoutHandler(http.getWriteTimeoutSeconds(), TimeUnit.SECONDS)));
+        if (http.isH2c()) {
+            // 明文 HTTP/2，服务端不支持时回退到 HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        // 使用 SNAKE_CASE 的 objectMapper 作为 JSON 编解码器
+        int maxInMemorySize = http.getMaxInMemorySizeKb() * 1024;
+        Jackson2JsonDecoder jsonDecoder = new Jackson2JsonDecoder(objectMapper, MediaType.APPLICATION_JSON);
+        jsonDecoder.setMaxInMemorySize(maxInMemorySize);
+        Jackson2JsonEncoder jsonEncoder = new Jackson2JsonEncoder(objectMapper, MediaType.APPLICATION_JSON);
+
+        this.webClient = WebClient.builder()
+            .baseUrl(config.getClient().getBaseUrl())
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> {
+                codecs.defaultCodecs().maxInMemorySize(maxInMemorySize);
+                codecs.defaultCodecs().jackson2JsonDecoder(jsonDecoder);
+                codecs.defaultCodecs().jackson2JsonEncoder(jsonEncoder);
+            })
+            .defaultHeader("Content-Type", "application/json")
+            // 异步配置 Mem0 时，配置完成前的请求先等待 readinessGate
+            .filter((request, next) -> {
+                Mono<Void> gate = this.readinessGate;
+                return gate == null || request.url().getPath().endsWith(CONFIGURE_ENDPOINT)
+                        ? next.exchange(request)
+                        : gate.then(Mono.defer(() -> next.exchange(request)));
+            })
+            .build();
+    }
+
+    /**
+     * 设置请求发出前需要等待的条件，为空时不等待
+     */
+    public void setReadinessGate(Mono<Void> readinessGate) {
+        this.readinessGate = readinessGate;
+    }
+
+    /**
+     * Mem0 请求和响应使用的 ObjectMapper：key 为下划线风格，忽略空值和空集合
+     */
+    public static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        // json key序列化为_风格
+        objectMapper.setPropertyNamingStrategy(com.fasterxml.jackson.databind.PropertyNamingStrategies.SNAKE_CASE);
+        // 忽略空值和空集合
+        objectMapper.registerModule(new JavaTimeModule())
+                .setSerializationInclusion(com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY);
+        return objectMapper;
+    }
+
+    /**
+     * 释放连接池
+     */
+    @Override
+    public void destroy() {
+        connectionProvider.disposeLater().block(timeout());
+    }
+
+    /**
+     * 配置 Mem0
+     */
+    public Mono<Void> configure(MemZeroChatMemoryProperties.Server config) {
+        // 读取 classpath 下的 prompt 文件属于阻塞 IO，放到 boundedElastic 上执行；
+        // 结果缓存，重试时不会再次把已读取的内容当作路径加载
+        return Mono.fromCallable(() -> {
+                    if (Objects.nonNull(config.getProject())){
+                        config.getProject().setCustomInstructions(this.loadPrompt(config.getProject().getCustomInstructions()));
+                        config.getProject().setCustomCategories(this.loadPrompt(config.getProject().getCustomCategories()));
+                    }
+                    if (Objects.nonNull(config.getGraphStore())){
+                        config.getGraphStore().setCustomPrompt(this.loadPrompt(config.getGraphStore().getCustomPrompt()));
+                    }
+                    config.setCustomFactExtractionPrompt(this.loadPrompt(config.getCustomFactExtractionPrompt()));
+                    config.setCustomUpdateMemoryPrompt(this.loadPrompt(config.getCustomUpdateMemoryPrompt()));
+                    return config;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .cache()
+                .flatMap(server -> webClient.post()
+                        .uri(CONFIGURE_ENDPOINT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(server)
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .transform(exchange -> payloadLogger.log(endpoint(CONFIGURE_ENDPOINT), server, exchange))
+                        .timeout(timeout())
+                        .transform(retryPolicy::idempotent)
+                        .transform(circuitBreaker::protect)
+                        .transform(exchange -> metered(endpoint(CONFIGURE_ENDPOINT), "POST", exchange)))
+                .defaultIfEmpty("")
+                .onErrorMap(e -> {
+                    logger.error("Failed to configure Mem0: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to configure Mem0", e);
+                })
+                .flatMap(response -> {
+                    if (StringUtils.hasText(response) && response.contains("successfully")) {
+                        logger.info("Mem0 configuration updated successfully");
+                        // 后端重新初始化，之前缓存的结果不再可信
+                        invalidateAll();
+                        return Mono.<Void>empty();
+                    }
+                    logger.error("Failed to configure Mem0: {}", response);
+                    return Mono.<Void>error(new RuntimeException("Failed to configure Mem0"));
+                });
+    }
+
+    /**
+     * 添加记忆
+     */
+    public Mono<Void> addMemory(MemZeroServerRequest.MemoryCreate memoryCreate) {
+        return webClient.post()
+                .uri(MEMORIES_ENDPOINT)
+                .contentType(MediaType.APPLICATION_JSON)
+                // 服务端按幂等键去重，重试不会产生重复记忆
+                .header(IDEMPOTENCY_KEY_HEADER, memoryCreate.getIdempotencyKey())
+                .bodyValue(memoryCreate)
+                .retrieve()
+                .toBodilessEntity()
+                .transform(exchange -> payloadLogger.log(endpoint(MEMORIES_ENDPOINT), memoryCreate, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "POST", exchange))
+                .doOnNext(response -> logger.info("Successfully added memory with {} messages", memoryCreate.getMessages().size()))
+                .onErrorMap(e -> {
+                    if (e instanceof WebClientResponseException responseException) {
+                        String errorBody = responseException.getResponseBodyAsString();
+                        logger.error("HTTP error adding memory: {} - {}", responseException.getStatusCode(), errorBody, e);
+                        return new RuntimeException("Failed to add memory: " + errorBody, e);
+                    }
+                    logger.error("UNKNOW error adding memory: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to add memory", e);
+                })
+                .transform(write -> invalidating(write,
+                        () -> invalidateScope(memoryCreate.getUserId(), memoryCreate.getAgentId(), memoryCreate.getRunId())))
+                .then();
+    }
+
+    /**
+     * 批量添加记忆，按作用域保序、有界并发，返回写入进度
+     */
+    public Flux<MemZeroBulkIngestion.Progress> addMemories(Flux<MemZeroServerRequest.MemoryCreate> memories,
+                                                          MemZeroBulkIngestion.Options options) {
+        return new MemZeroBulkIngestion(this, options).ingest(memories);
+    }
+
+    /**
+     * 获取所有记忆
+     */
+    public Mono<MemZeroServerResp> getAllMemories(String userId, String runId, String agentId) {
+        return cached(MemZeroSearchCache.CacheKey.all(userId, runId, agentId), () -> doGetAllMemories(userId, runId, agentId, null));
+    }
+
+    /**
+     * limit 不为空时只读取第一页（按创建时间排序的前 limit 条，包含 relations）
+     */
+    private Mono<MemZeroServerResp> doGetAllMemories(String userId, String runId, String agentId, Integer limit) {
+        return webClient.get()
+                .uri(uriBuilder -> {
+                    uriBuilder.path(MEMORIES_ENDPOINT);
+                    if (userId != null) uriBuilder.queryParam("user_id", userId);
+                    if (runId != null) uriBuilder.queryParam("run_id", runId);
+                    if (agentId != null) uriBuilder.queryParam("agent_id", agentId);
+                    if (limit != null) uriBuilder.queryParam("limit", limit);
+                    return uriBuilder.build();
+                })
+                .retrieve()
+                // Mem0 服务返回 {"results":[],"relations":[]} 格式
+                .bodyToMono(MemZeroServerResp.class)
+                .transform(exchange -> payloadLogger.log(endpoint(MEMORIES_ENDPOINT), null, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "GET", exchange))
+                .switchIfEmpty(Mono.fromSupplier(MemZeroServerResp::new))
+                .onErrorMap(e -> {
+                    logger.error("Failed to get memories: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to get memories", e);
+                });
+    }
+
+    /**
+     * 流式获取作用域内的记忆
+     *
+     * 按 mem0.client.page-size 分页请求，服务端按 (created_at, id) 排序，下一页从上一页返回的游标之后继续，
+     * 分页期间新增的记忆不会导致重复或遗漏。每页响应边接收边解析，下游按需请求下一页；limit 为空时读取全部。
+     * 只返回记忆，不包含 relations。
+     */
+    public Flux<MemZeroServerResp.MemZeroResults> streamAllMemories(String userId, String runId, String agentId, Integer limit) {
+        int pageSize = limit == null ? config.getClient().getPageSize() : Math.min(limit, config.getClient().getPageSize());
+        Flux<MemZeroServerResp.MemZeroResults> results = Flux.defer(() -> {
+            // 下一页的游标，第一页为空
+            AtomicReference<String> cursor = new AtomicReference<>();
+            AtomicBoolean exhausted = new AtomicBoolean();
+            return Flux.range(0, Integer.MAX_VALUE)
+                    .takeWhile(page -> !exhausted.get())
+                    .concatMap(page -> {
+                        if (exhausted.get()) {
+                            return Flux.empty();
+                        }
+                        return fetchPage(userId, runId, agentId, cursor.get(), pageSize, next -> {
+                            cursor.set(next);
+                            // 没有下一页的游标说明已经读完
+                            exhausted.set(next == null);
+                        });
+                    }, 1);
+        });
+        return limit == null ? results : results.take(limit, true);
+    }
+
+    private Flux<MemZeroServerResp.MemZeroResults> fetchPage(String userId, String runId, String agentId, String cursor,
+                                                             int pageSize, Consumer<String> nextCursor) {
+        Flux<MemZeroServerResp.MemZeroResults> page = Flux.defer(() -> {
+            MemZeroResultsStreamParser parser = new MemZeroResultsStreamParser(objectMapper);
+            return webClient.get()
+                    .uri(uriBuilder -> {
+                        uriBuilder.path(MEMORIES_ENDPOINT);
+                        if (userId != null) uriBuilder.queryParam("user_id", userId);
+                        if (runId != null) uriBuilder.queryParam("run_id", runId);
+                        if (agentId != null) uriBuilder.queryParam("agent_id", agentId);
+                        uriBuilder.queryParam("limit", pageSize);
+                        if (cursor != null) uriBuilder.queryParam("cursor", cursor);
+                        return uriBuilder.build();
+                    })
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)
+                    // 两段数据之间的最长等待时间
+                    .timeout(timeout())
+                    .concatMapIterable(parser::feed)
+                    // 取消时释放还没有解析的缓冲区
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(parser.endOfInput())))
+                    .doOnComplete(() -> nextCursor.accept(parser.nextCursor()));
+        });
+        return page
+                .transform(retryPolicy::idempotentMany)
+                .transform(circuitBreaker::protectMany)
+                .transform(results -> meteredMany(endpoint(MEMORIES_ENDPOINT), "GET", results))
+                .onErrorMap(e -> {
+                    logger.error("Failed to stream memories after cursor {}: {}", cursor, e.getMessage(), e);
+                    return new RuntimeException("Failed to stream memories", e);
+                });
+    }
+
+    /**
+     * 获取单个记忆
+     */
+    public Mono<MemZeroServerResp> getMemory(String memoryId) {
+        return cached(MemZeroSearchCache.CacheKey.memory(memoryId), () -> doGetMemory(memoryId));
+    }
+
+    private Mono<MemZeroServerResp> doGetMemory(String memoryId) {
+        return webClient.get()
+                .uri(MEMORIES_ENDPOINT + "/{memoryId}", memoryId)
+                .retrieve()
+                .bodyToMono(MemZeroServerResp.class)
+                .transform(exchange -> payloadLogger.log(endpoint(MEMORIES_ENDPOINT), null, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "GET", exchange))
+                .doOnNext(memory -> logger.info("Retrieved memory: {}", memoryId))
+                .onErrorMap(e -> {
+                    logger.error("Failed to get memory {}: {}", memoryId, e.getMessage(), e);
+                    return new RuntimeException("Failed to get memory " + memoryId, e);
+                });
+    }
+
+    /**
+     * 搜索记忆
+     */
+    public Mono<MemZeroServerResp> searchMemories(MemZeroServerRequest.SearchRequest searchRequest) {
+        // SEARCH_ENDPOINT 要求query必须有值，所以做了一个回退机制
+        if (!StringUtils.hasText(searchRequest.getQuery())){
+            Integer limit = searchRequest.getLimit();
+            if (limit == null) {
+                return getAllMemories(searchRequest.getUserId(), searchRequest.getRunId(), searchRequest.getAgentId());
+            }
+            // 有 limit 时只读取第一页的 limit 条记忆和 relations，不加载整个作用域
+            return cached(MemZeroSearchCache.CacheKey.all(searchRequest.getUserId(), searchRequest.getRunId(), searchRequest.getAgentId(), limit),
+                    () -> doGetAllMemories(searchRequest.getUserId(), searchRequest.getRunId(), searchRequest.getAgentId(), limit));
+        }
+        return cached(MemZeroSearchCache.CacheKey.search(searchRequest), () -> doSearchMemories(searchRequest));
+    }
+
+    private Mono<MemZeroServerResp> doSearchMemories(MemZeroServerRequest.SearchRequest searchRequest) {
+        return webClient.post()
+                .uri(SEARCH_ENDPOINT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(searchRequest)
+                .retrieve()
+                // Mem0 服务返回 {"results":[],"relations":[]} 格式
+                .bodyToMono(MemZeroServerResp.class)
+                // 报文日志按采样输出，默认关闭
+                .transform(exchange -> payloadLogger.log(endpoint(SEARCH_ENDPOINT), searchRequest, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(SEARCH_ENDPOINT), "POST", exchange))
+                .doOnNext(response -> {
+                    int results = response.getResults() == null ? 0 : response.getResults().size();
+                    searchResultsSummary.record(results);
+                    logger.debug("Received {} results from Mem0", results);
+                })
+                .switchIfEmpty(Mono.fromSupplier(MemZeroServerResp::new))
+                .onErrorMap(e -> {
+                    logger.error("Failed to search memories: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to search memories", e);
+                });
+    }
+
+    /**
+     * 更新记忆
+     */
+    public Mono<Map<String, Object>> updateMemory(String memoryId, Map<String, Object> updatedMemory) {
+        return webClient.put()
+                .uri(MEMORIES_ENDPOINT + "/{memoryId}", memoryId)
+                .bodyValue(updatedMemory)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .transform(exchange -> payloadLogger.log(endpoint(MEMORIES_ENDPOINT), updatedMemory, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "PUT", exchange))
+                .doOnNext(result -> logger.info("Successfully updated memory: " + memoryId))
+                .switchIfEmpty(Mono.fromSupplier(HashMap::new))
+                .onErrorMap(e -> {
+                    logger.error("Failed to update memory {}: {}", memoryId, e.getMessage(), e);
+                    return new RuntimeException("Failed to update memory", e);
+                })
+                .transform(write -> invalidating(write, () -> invalidateMemory(memoryId)));
+    }
+
+    /**
+     * 获取记忆历史
+     */
+    public Flux<Map<String, Object>> getMemoryHistory(String memoryId) {
+        return webClient.get()
+                .uri(MEMORIES_ENDPOINT + "/{memoryId}/history", memoryId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .transform(exchange -> payloadLogger.log(endpoint(HISTORY_ENDPOINT), null, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(HISTORY_ENDPOINT), "GET", exchange))
+                .flatMapIterable(response -> parseHistory(memoryId, response))
+                .onErrorMap(e -> {
+                    logger.error("Failed to get memory history {}: {}", memoryId, e.getMessage(), e);
+                    return new RuntimeException("Failed to get memory history", e);
+                });
+    }
+
+    private List<Map<String, Object>> parseHistory(String memoryId, JsonNode response) {
+        // 响应为对象时，检查是否有 data 字段包含数组
+        JsonNode history = response.isObject() ? response.get("data") : response;
+        if (history != null && history.isArray()) {
+            logger.info("Retrieved history for memory: {}", memoryId);
+            return objectMapper.convertValue(history, new TypeReference<List<Map<String, Object>>>() {});
+        }
+
+        // 如果都失败了，返回空列表
+        logger.warn("Could not parse memory history from response: {}", response);
+        return new ArrayList<>();
+    }
+
+    /**
+     * 删除单个记忆
+     */
+    public Mono<Void> deleteMemory(String memoryId) {
+        return webClient.delete()
+                .uri(MEMORIES_ENDPOINT + "/{memoryId}", memoryId)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "DELETE", exchange))
+                .doOnSuccess(response -> logger.info("Successfully deleted memory: {}", memoryId))
+                .onErrorMap(e -> {
+                    logger.error("Failed to delete memory {}: {}", memoryId, e.getMessage(), e);
+                    return new RuntimeException("Failed to delete memory", e);
+                })
+                .transform(write -> invalidating(write, () -> invalidateMemory(memoryId)))
+                .then();
+    }
+
+    /**
+     * 删除所有记忆
+     */
+    public Mono<Void> deleteAllMemories(String userId, String runId, String agentId) {
+        return webClient.delete()
+                .uri(uriBuilder -> {
+                    uriBuilder.path(MEMORIES_ENDPOINT);
+                    if (userId != null) uriBuilder.queryParam("user_id", userId);
+                    if (runId != null) uriBuilder.queryParam("run_id", runId);
+                    if (agentId != null) uriBuilder.queryParam("agent_id", agentId);
+                    return uriBuilder.build();
+                })
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(MEMORIES_ENDPOINT), "DELETE", exchange))
+                .doOnSuccess(response -> logger.info("Successfully deleted all memories"))
+                .onErrorMap(e -> {
+                    logger.error("Failed to delete all memories: {}", e.getMessage(), e);
+                    return new RuntimeException("Failed to delete all memories", e);
+                })
+                .transform(write -> invalidating(write, () -> invalidateScope(userId, agentId, runId)))
+                .then();
+    }
+
+    /**
+     * 重置所有记忆
+     */
+    public Mono<Void> resetAllMemories() {
+        return webClient.post()
+                .uri(RESET_ENDPOINT)
+                .retrieve()
+                .toBodilessEntity()
+                .transform(exchange -> payloadLogger.log(endpoint(RESET_ENDPOINT), null, exchange))
+                .timeout(timeout())
+                .transform(retryPolicy::idempotent)
+                .transform(circuitBreaker::protect)
+                .transform(exchange -> metered(endpoint(RESET_ENDPOINT), "POST", exchange))
+                .doOnSuccess(response -> logger.info("Successfully reset all memories"))
+                .onErrorMap(e -> {
+                    logger.error("Failed to reset all memories: " + e.getMessage(), e);
+                    return new RuntimeException("Failed to reset all memories", e);
+                })
+                .transform(write -> invalidating(write, this::invalidateAll))
+                .then();
+    }
+
+    public String loadPrompt(String classPath) throws Exception {
+        if (StringUtils.hasText(classPath)){
+            Resource resource = resourceLoader.getResource(classPath);
+            if (!resource.exists()) {
+                throw new IllegalArgumentException("Prompt resource not found: " + classPath);
+            }
+            // 读取文件内容为字符串
+            return new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private Mono<MemZeroServerResp> cached(MemZeroSearchCache.CacheKey key, Supplier<Mono<MemZeroServerResp>> loader) {
+        // 缓存未命中时，相同的并发请求只发送一次
+        Supplier<Mono<MemZeroServerResp>> coalesced = singleFlight == null ? loader : () -> singleFlight.execute(key, loader);
+        return cache == null ? coalesced.get() : cache.get(key, coalesced);
+    }
+
+    /**
+     * 写操作结束（成功、失败或取消）时失效缓存；在结果传给调用方之前执行，调用方随后的查询不会读到旧结果
+     */
+    private static <T> Mono<T> invalidating(Mono<T> write, Runnable invalidation) {
+        return write.doOnTerminate(invalidation).doOnCancel(invalidation);
+    }
+
+    private void invalidateScope(String userId, String agentId, String runId) {
+        if (singleFlight != null) {
+            singleFlight.invalidateScope(userId, agentId, runId);
+        }
+        if (cache != null) {
+            cache.invalidateScope(userId, agentId, runId);
+        }
+    }
+
+    private void invalidateMemory(String memoryId) {
+        if (singleFlight != null) {
+            singleFlight.invalidateAll();
+        }
+        if (cache != null) {
+            cache.invalidateMemory(memoryId);
+        }
+    }
+
+    private void invalidateAll() {
+        if (singleFlight != null) {
+            singleFlight.invalidateAll();
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 记录一次 Mem0 调用（包含重试）的耗时，按端点、方法、结果和状态码打标签
+     */
+    private <T> Mono<T> metered(String endpoint, String method, Mono<T> exchange) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return exchange
+                    .doOnSuccess(value -> stop(sample, endpoint, method, "success", "2xx"))
+                    .doOnError(error -> stop(sample, endpoint, method, outcome(error), status(error)))
+                    .doOnCancel(() -> stop(sample, endpoint, method, "cancelled", "none"));
+        });
+    }
+
+    /**
+     * 流式请求的版本，完成时记为成功
+     */
+    private <T> Flux<T> meteredMany(String endpoint, String method, Flux<T> exchange) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return exchange
+                    .doOnComplete(() -> stop(sample, endpoint, method, "success", "2xx"))
+                    .doOnError(error -> stop(sample, endpoint, method, outcome(error), status(error)))
+                    .doOnCancel(() -> stop(sample, endpoint, method, "cancelled", "none"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, String endpoint, String method, String outcome, String status) {
+        sample.stop(requestTimer(new RequestTimerKey(endpoint, method, outcome, status)));
+    }
+
+    /**
+     * 成功请求的 Timer 在构造时注册，错误结果和状态码第一次出现时注册，之后从缓存中取
+     */
+    private Timer requestTimer(RequestTimerKey key) {
+        return requestTimers.computeIfAbsent(key, k -> Timer.builder(REQUESTS_TIMER)
+                .description("Latency of Mem0 REST calls, including retries")
+                .tag("endpoint", k.endpoint())
+                .tag("method", k.method())
+                .tag("outcome", k.outcome())
+                .tag("status", k.status())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private record RequestTimerKey(String endpoint, String method, String outcome, String status) {
+    }
+
+    private static String outcome(Throwable error) {
+        if (error instanceof MemZeroUnavailableException) {
+            return "circuit_open";
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+        }
+        if (error instanceof TimeoutException) {
+            return "timeout";
+        }
+        return "error";
+    }
+
+    private static String status(Throwable error) {
+        return error instanceof WebClientResponseException responseException
+                ? String.valueOf(responseException.getStatusCode().value())
+                : "none";
+    }
+
+    /**
+     * 端点名称，用作日志采样和指标的 key，例如 /search -> search
+     */
+    private static String endpoint(String path) {
+        return path.substring(1);
+    }
+
+    /**
+     * 当前熔断器状态，供健康检查和降级判断使用
+     */
+    public MemZeroCircuitBreaker.State circuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    private Duration timeout() {
+        return Duration.ofSeconds(config.getClient().getTimeoutSeconds());
+    }
+}
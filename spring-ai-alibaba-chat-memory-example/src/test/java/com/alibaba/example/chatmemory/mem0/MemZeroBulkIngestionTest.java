@@ -0,0 +1,129 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MemZeroBulkIngestionTest {
+
+    private final ReactiveMemZeroServiceClient client = mock(ReactiveMemZeroServiceClient.class);
+
+    private final InMemoryCheckpointStore checkpointStore = new InMemoryCheckpointStore();
+
+    // 已写入的幂等键
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    @Test
+    void failedRecordIsKeptInTheCheckpointAndReplayedOnResume() {
+        failing(Set.of("job-2"));
+
+        MemZeroBulkIngestion.Progress first = ingest(5);
+
+        assertThat(first.succeeded()).isEqualTo(4);
+        assertThat(first.failed()).isEqualTo(1);
+        assertThat(checkpointStore.load("job")).isEqualTo(new MemZeroBulkIngestion.Checkpoint(5, Set.of(2L)));
+
+        written.clear();
+        failing(Set.of());
+        MemZeroBulkIngestion.Progress second = ingest(7);
+
+        // 只重放失败的记录，再继续检查点之后的记录
+        assertThat(written).containsExactlyInAnyOrder("job-2", "job-5", "job-6");
+        assertThat(second.succeeded()).isEqualTo(3);
+        assertThat(checkpointStore.load("job")).isEqualTo(new MemZeroBulkIngestion.Checkpoint(7, Set.of()));
+    }
+
+    @Test
+    void replayThatFailsAgainStaysInTheCheckpoint() {
+        failing(Set.of("job-1"));
+        ingest(3);
+
+        ingest(3);
+
+        assertThat(checkpointStore.load("job")).isEqualTo(new MemZeroBulkIngestion.Checkpoint(3, Set.of(1L)));
+    }
+
+    @Test
+    void fileCheckpointStoreKeepsFailedSequences(@TempDir Path directory) throws Exception {
+        MemZeroBulkIngestion.FileCheckpointStore store = new MemZeroBulkIngestion.FileCheckpointStore(directory);
+
+        store.save("job", new MemZeroBulkIngestion.Checkpoint(100, Set.of(42L, 7L)));
+        assertThat(store.load("job")).isEqualTo(new MemZeroBulkIngestion.Checkpoint(100, Set.of(7L, 42L)));
+
+        // 只有 watermark 的检查点文件
+        Files.writeString(directory.resolve("old.checkpoint"), "12", StandardCharsets.UTF_8);
+        assertThat(store.load("old")).isEqualTo(new MemZeroBulkIngestion.Checkpoint(12, Set.of()));
+        assertThat(store.load("missing")).isEqualTo(MemZeroBulkIngestion.Checkpoint.EMPTY);
+    }
+
+    @Test
+    void maxUnavailableBackoffMustNotBeLessThanTheInitialBackoff() {
+        assertThatThrownBy(() -> MemZeroBulkIngestion.Options.builder("job")
+                .unavailableRetries(3, Duration.ofSeconds(5))
+                .maxUnavailableBackoff(Duration.ofSeconds(1))
+                .build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MemZeroBulkIngestion.Progress ingest(int records) {
+        MemZeroBulkIngestion.Options options = MemZeroBulkIngestion.Options.builder("job")
+                .concurrency(2)
+                .checkpointInterval(1)
+                .checkpointStore(checkpointStore)
+                .build();
+        Flux<MemZeroServerRequest.MemoryCreate> memories = Flux.fromStream(IntStream.range(0, records)
+                .mapToObj(i -> MemZeroServerRequest.MemoryCreate.builder()
+                        .userId("u" + (i % 3))
+                        .messages(List.of(new MemZeroServerRequest.Message("user", "message " + i)))
+                        .build()));
+        return new MemZeroBulkIngestion(client, options).ingest(memories).blockLast();
+    }
+
+    /**
+     * 幂等键在 failures 中的写入失败（不属于服务不可用，不会等待重试）
+     */
+    private void failing(Set<String> failures) {
+        when(client.addMemory(any())).thenAnswer(invocation -> {
+            MemZeroServerRequest.MemoryCreate memory = invocation.getArgument(0);
+            return Mono.defer(() -> {
+                if (failures.contains(memory.getIdempotencyKey())) {
+                    return Mono.error(new IllegalStateException("rejected"));
+                }
+                written.add(memory.getIdempotencyKey());
+                return Mono.empty();
+            });
+        });
+    }
+
+    private static final class InMemoryCheckpointStore implements MemZeroBulkIngestion.CheckpointStore {
+        private final Map<String, MemZeroBulkIngestion.Checkpoint> checkpoints = new HashMap<>();
+
+        @Override
+        public synchronized MemZeroBulkIngestion.Checkpoint load(String jobId) {
+            return checkpoints.getOrDefault(jobId, MemZeroBulkIngestion.Checkpoint.EMPTY);
+        }
+
+        @Override
+        public synchronized void save(String jobId, MemZeroBulkIngestion.Checkpoint checkpoint) {
+            checkpoints.put(jobId, checkpoint);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static com.alibaba.example.chatmemory.mem0.MemZeroChatMemoryAdvisor.USER_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MemZeroChatMemoryAdvisorTest {
+
+    private final MemZeroServiceClient client = mock(MemZeroServiceClient.class);
+
+    private final ReactiveMemZeroServiceClient reactiveClient = mock(ReactiveMemZeroServiceClient.class);
+
+    @BeforeEach
+    void setUp() {
+        when(client.reactive()).thenReturn(reactiveClient);
+        when(reactiveClient.searchMemories(any())).thenReturn(Mono.just(new MemZeroServerResp()));
+    }
+
+    @Test
+    void defaultModeWritesOneMemoryCreatePerTurn() {
+        MemZeroChatMemoryAdvisor advisor = MemZeroChatMemoryAdvisor.builder(MemZeroMemoryStore.builder(client).build())
+                .scheduler(Schedulers.immediate())
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+
+        ChatClientRequest augmented = advisor.before(request("我周末喜欢去香山爬山"), null);
+        verify(client, never()).addMemory(any());
+
+        advisor.after(response(augmented, "香山秋天的红叶很好看"), null);
+
+        ArgumentCaptor<MemZeroServerRequest.MemoryCreate> memoryCreate = ArgumentCaptor.forClass(MemZeroServerRequest.MemoryCreate.class);
+        verify(client, times(1)).addMemory(memoryCreate.capture());
+        assertThat(memoryCreate.getValue().getUserId()).isEqualTo("u1");
+        assertThat(memoryCreate.getValue().getMessages())
+                .extracting(MemZeroServerRequest.Message::getRole, MemZeroServerRequest.Message::getContent)
+                .containsExactly(
+                        tuple("user", "我周末喜欢去香山爬山"),
+                        tuple("assistant", "香山秋天的红叶很好看"));
+    }
+
+    @Test
+    void syncModeWritesTheUserMessageSeparately() {
+        MemZeroChatMemoryAdvisor advisor = MemZeroChatMemoryAdvisor.builder(MemZeroMemoryStore.builder(client).build())
+                .scheduler(Schedulers.immediate())
+                .userMessageWriteMode(MemZeroChatMemoryAdvisor.UserMessageWriteMode.SYNC)
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+
+        ChatClientRequest augmented = advisor.before(request("我周末喜欢去香山爬山"), null);
+        advisor.after(response(augmented, "香山秋天的红叶很好看"), null);
+
+        verify(client, times(2)).addMemory(any());
+    }
+
+    @Test
+    void streamForwardsTokensAndSavesTheAggregatedTurn() {
+        MemZeroChatMemoryAdvisor advisor = MemZeroChatMemoryAdvisor.builder(MemZeroMemoryStore.builder(client).build())
+                .scheduler(Schedulers.immediate())
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        StreamAdvisorChain chain = mock(StreamAdvisorChain.class);
+        // 模型逐个返回 token，每个分片带着增强后请求的上下文
+        when(chain.nextStream(any())).thenAnswer(invocation -> {
+            ChatClientRequest augmented = invocation.getArgument(0);
+            return tokens.asFlux().map(token -> response(augmented, token));
+        });
+
+        StepVerifier.create(advisor.adviseStream(request("我周末喜欢去香山爬山"), chain))
+                .then(() -> tokens.tryEmitNext("香山秋天"))
+                // 每个 token 到达后立即转发，不等待整个回答
+                .assertNext(response -> assertThat(text(response)).isEqualTo("香山秋天"))
+                .then(() -> tokens.tryEmitNext("的红叶很好看"))
+                .assertNext(response -> assertThat(text(response)).isEqualTo("的红叶很好看"))
+                .then(() -> verify(client, never()).addMemory(any()))
+                .then(tokens::tryEmitComplete)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        // 流结束后在后台写入，用户消息与聚合后的回答属于同一个 MemoryCreate
+        ArgumentCaptor<MemZeroServerRequest.MemoryCreate> memoryCreate = ArgumentCaptor.forClass(MemZeroServerRequest.MemoryCreate.class);
+        verify(client, timeout(5000).times(1)).addMemory(memoryCreate.capture());
+        assertThat(memoryCreate.getValue().getUserId()).isEqualTo("u1");
+        assertThat(memoryCreate.getValue().getMessages())
+                .extracting(MemZeroServerRequest.Message::getRole, MemZeroServerRequest.Message::getContent)
+                .containsExactly(
+                        tuple("user", "我周末喜欢去香山爬山"),
+                        tuple("assistant", "香山秋天的红叶很好看"));
+    }
+
+    private static String text(ChatClientResponse response) {
+        return response.chatResponse().getResult().getOutput().getText();
+    }
+
+    private static ChatClientRequest request(String text) {
+        return ChatClientRequest.builder()
+                .prompt(new Prompt(new UserMessage(text)))
+                .context(Map.of(USER_ID, "u1"))
+                .build();
+    }
+
+    private static ChatClientResponse response(ChatClientRequest request, String text) {
+        return ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))))
+                .context(request.context())
+                .build();
+    }
+}
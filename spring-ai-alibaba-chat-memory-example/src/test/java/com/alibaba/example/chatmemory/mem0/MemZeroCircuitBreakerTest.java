@@ -0,0 +1,134 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemZeroCircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private final MemZeroCircuitBreaker breaker = new MemZeroCircuitBreaker(true, 3, OPEN_DURATION, 1, new SimpleMeterRegistry());
+
+    @Test
+    void opensAfterConsecutiveFailuresAndClosesAfterASuccessfulProbe() throws InterruptedException {
+        fail();
+        fail();
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.CLOSED);
+        fail();
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.OPEN);
+
+        // 打开期间直接失败，请求不会发出
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> breaker.protect(Mono.fromSupplier(calls::incrementAndGet)).block())
+                .isInstanceOf(MemZeroUnavailableException.class);
+        assertThat(calls).hasValue(0);
+
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+        Sinks.One<String> probe = Sinks.one();
+        breaker.protect(probe.asMono()).subscribe();
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.HALF_OPEN);
+
+        probe.tryEmitValue("ok");
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopens() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        fail();
+
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void halfOpenLetsASingleProbeThroughUnderConcurrentCalls() throws Exception {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        int callers = 16;
+        Sinks.One<String> probe = Sinks.one();
+        AtomicInteger subscribed = new AtomicInteger();
+        List<Throwable> rejected = new CopyOnWriteArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(callers);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            for (int i = 0; i < callers; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        breaker.protect(probe.asMono().doOnSubscribe(s -> subscribed.incrementAndGet()))
+                                .subscribe(value -> { }, rejected::add);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(subscribed).hasValue(1);
+        assertThat(rejected).hasSize(callers - 1).allMatch(MemZeroUnavailableException.class::isInstance);
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.HALF_OPEN);
+
+        probe.tryEmitValue("ok");
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void cancelledProbeReleasesItsSlot() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION.toMillis() * 2);
+
+        Disposable probe = breaker.protect(Sinks.<String>one().asMono()).subscribe();
+        probe.dispose();
+
+        assertThat(breaker.protect(Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheBreaker() {
+        for (int i = 0; i < 5; i++) {
+            Mono<String> badRequest = Mono.error(WebClientResponseException.create(400, "Bad Request", null, null, null));
+            breaker.protect(badRequest).onErrorResume(e -> Mono.empty()).block();
+        }
+
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.CLOSED);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            fail();
+        }
+        assertThat(breaker.getState()).isEqualTo(MemZeroCircuitBreaker.State.OPEN);
+    }
+
+    private void fail() {
+        breaker.protect(Mono.error(new TimeoutException())).onErrorResume(e -> Mono.empty()).block();
+    }
+}
@@ -0,0 +1,131 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.and;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.eq;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.gte;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.in;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.ne;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.nin;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.not;
+import static com.alibaba.example.chatmemory.mem0.MemZeroFilterExpressionConverter.or;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * compile() 与改造前 convertExpression() 的输出对比
+ *
+ * 下面的 JSON 是改造前 convertExpression() 的原始输出：AND / OR / NOT 的子表达式是嵌入的 JSON 字符串，
+ * 对比时先把这些字符串解析为 Map，compile() 的结果应与之相同。
+ */
+class MemZeroFilterExpressionConverterTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MemZeroFilterExpressionConverter converter = new MemZeroFilterExpressionConverter();
+
+    @Test
+    void comparisonOperatorsMatchTheLegacyOutput() {
+        assertGolden(eq("category", "hobby"), "{\"category\":\"hobby\"}");
+        assertGolden(eq("priority", 1), "{\"priority\":1}");
+        assertGolden(ne("category", "work"), "{\"category\":{\"ne\":\"work\"}}");
+        assertGolden(gte("priority", 2), "{\"priority\":{\"gte\":2}}");
+        assertGolden(in("category", List.of("hobby", "travel")), "{\"category\":{\"in\":[\"hobby\",\"travel\"]}}");
+        assertGolden(nin("category", List.of("work")), "{\"category\":{\"nin\":[\"work\"]}}");
+    }
+
+    @Test
+    void logicalOperatorsMatchTheLegacyOutput() {
+        assertGolden(and(eq("category", "hobby"), eq("priority", 1)),
+                "{\"AND\":[\"{\\\"category\\\":\\\"hobby\\\"}\",\"{\\\"priority\\\":1}\"]}");
+        assertGolden(or(eq("category", "hobby"), in("category", List.of("travel"))),
+                "{\"OR\":[\"{\\\"category\\\":\\\"hobby\\\"}\",\"{\\\"category\\\":{\\\"in\\\":[\\\"travel\\\"]}}\"]}");
+        assertGolden(not(eq("category", "work")),
+                "{\"NOT\":\"{\\\"category\\\":\\\"work\\\"}\"}");
+    }
+
+    @Test
+    void nestedLogicalOperatorsMatchTheLegacyOutput() {
+        assertGolden(and(eq("user", "u1"), or(eq("category", "hobby"), not(eq("category", "work")))),
+                "{\"AND\":[\"{\\\"user\\\":\\\"u1\\\"}\",\"{\\\"OR\\\":[\\\"{\\\\\\\"category\\\\\\\":\\\\\\\"hobby\\\\\\\"}\\\","
+                        + "\\\"{\\\\\\\"NOT\\\\\\\":\\\\\\\"{\\\\\\\\\\\\\\\"category\\\\\\\\\\\\\\\":\\\\\\\\\\\\\\\"work\\\\\\\\\\\\\\\"}\\\\\\\"}\\\"]}\"]}");
+    }
+
+    @Test
+    void groupedOperandsAreUnwrapped() {
+        // 改造前分组（括号）的操作数会被丢掉，这里与不带括号的等价表达式对比
+        Filter.Expression grouped = new FilterExpressionTextParser()
+                .parse("user == 'u1' && (category == 'hobby' || category == 'travel')");
+        Filter.Expression ungrouped = and(eq("user", "u1"), or(eq("category", "hobby"), eq("category", "travel")));
+
+        assertThat(converter.compile(grouped)).isEqualTo(converter.compile(ungrouped));
+        assertThat(converter.compile(new Filter.Expression(Filter.ExpressionType.NOT,
+                new Filter.Group(eq("category", "work")))))
+                .isEqualTo(Map.of("NOT", Map.of("category", "work")));
+    }
+
+    @Test
+    void convertExpressionReturnsTheCompiledMapAsJson() throws Exception {
+        Filter.Expression expression = and(eq("category", "hobby"), not(eq("priority", 1)));
+
+        Map<String, Object> json = objectMapper.readValue(converter.convertExpression(expression), new TypeReference<>() {
+        });
+
+        assertThat(json).isEqualTo(Map.of("AND", List.of(Map.of("category", "hobby"), Map.of("NOT", Map.of("priority", 1)))));
+    }
+
+    @Test
+    void compiledFiltersAreCachedAndImmutable() {
+        Map<String, Object> first = converter.compile(and(eq("category", "hobby"), eq("priority", 1)));
+        Map<String, Object> second = converter.compile(and(eq("category", "hobby"), eq("priority", 1)));
+
+        assertThat(second).isSameAs(first);
+        assertThatThrownBy(() -> first.put("other", 1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void comparisonWithoutValueIsRejected() {
+        Filter.Expression invalid = new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key("category"), null);
+
+        assertThatThrownBy(() -> converter.compile(invalid)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertGolden(Filter.Expression expression, String legacyJson) {
+        assertThat(converter.compile(expression)).isEqualTo(decodeLegacy(legacyJson));
+    }
+
+    /**
+     * 解析改造前的输出，把逻辑运算中嵌入的 JSON 字符串展开为 Map
+     */
+    private static Map<String, Object> decodeLegacy(String json) {
+        try {
+            Map<String, Object> map = objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {
+            });
+            for (String operator : List.of("AND", "OR")) {
+                if (map.get(operator) instanceof List<?> operands) {
+                    List<Object> decoded = new ArrayList<>();
+                    for (Object operand : operands) {
+                        decoded.add(decodeLegacy((String) operand));
+                    }
+                    map.put(operator, decoded);
+                }
+            }
+            if (map.get("NOT") instanceof String operand) {
+                map.put("NOT", decodeLegacy(operand));
+            }
+            return map;
+        } catch (Exception e) {
+            throw new IllegalArgumentException(json, e);
+        }
+    }
+}
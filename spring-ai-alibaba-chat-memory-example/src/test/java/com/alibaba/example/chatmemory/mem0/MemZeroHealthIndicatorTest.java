@@ -0,0 +1,75 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MemZeroHealthIndicatorTest {
+
+    private final MemZeroServerInitializer initializer = mock(MemZeroServerInitializer.class);
+
+    private final ReactiveMemZeroServiceClient client = mock(ReactiveMemZeroServiceClient.class);
+
+    private final MemZeroHealthIndicator healthIndicator = new MemZeroHealthIndicator(initializer, client);
+
+    @Test
+    void configuringIsOutOfService() {
+        givenState(MemZeroServerInitializer.State.CONFIGURING, 2, new MemZeroUnavailableException("connection refused"));
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(health.getDetails())
+                .containsEntry("state", MemZeroServerInitializer.State.CONFIGURING)
+                .containsEntry("configureAttempts", 2L)
+                .containsEntry("circuitBreaker", MemZeroCircuitBreaker.State.CLOSED)
+                .containsEntry("lastError", "connection refused");
+    }
+
+    @Test
+    void pendingIsOutOfService() {
+        givenState(MemZeroServerInitializer.State.PENDING, 0, null);
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(health.getDetails()).doesNotContainKey("lastError");
+    }
+
+    @Test
+    void readyIsUp() {
+        givenState(MemZeroServerInitializer.State.READY, 1, null);
+        when(client.circuitBreakerState()).thenReturn(MemZeroCircuitBreaker.State.OPEN);
+
+        Health health = healthIndicator.health();
+
+        // 熔断只作为详情展示，不影响就绪状态
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry("circuitBreaker", MemZeroCircuitBreaker.State.OPEN)
+                .doesNotContainKey("lastError");
+    }
+
+    @Test
+    void failedIsDown() {
+        givenState(MemZeroServerInitializer.State.FAILED, 5, new IllegalStateException("invalid vector store config"));
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails())
+                .containsEntry("configureAttempts", 5L)
+                .containsEntry("lastError", "invalid vector store config");
+    }
+
+    private void givenState(MemZeroServerInitializer.State state, long attempts, Throwable lastError) {
+        when(initializer.getState()).thenReturn(state);
+        when(initializer.getAttempts()).thenReturn(attempts);
+        when(initializer.getLastError()).thenReturn(lastError);
+        when(client.circuitBreakerState()).thenReturn(MemZeroCircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,94 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MemZeroMemoryContextPackerTest {
+
+    @Test
+    void documentsThatDoNotFitAreSkippedForShorterOnes() {
+        // 每个字符一个 token，加上 1 个分隔符
+        MemZeroMemoryContextPacker packer = packer(10, 0.0);
+
+        List<Document> packed = packer.pack(List.of(
+                memory("m1", "aaaaaa", 0.9),
+                memory("m2", "bbbbb", 0.8),
+                memory("m3", "cc", 0.7)));
+
+        // m1 用掉 7 个 token，m2 需要 6 个放不下，m3 需要 3 个
+        assertThat(packed).extracting(Document::getId).containsExactly("m1", "m3");
+    }
+
+    @Test
+    void memoriesBelowTheMinScoreAreDropped() {
+        MemZeroMemoryContextPacker packer = packer(100, 0.5);
+
+        List<Document> packed = packer.pack(List.of(
+                memory("m1", "likes movies", 0.9),
+                memory("m2", "lives in beijing", 0.4),
+                relation("r1", "u1 -- likes -- hiking")));
+
+        // relations 没有分数，不受最低分数影响
+        assertThat(packed).extracting(Document::getId).containsExactly("m1", "r1");
+    }
+
+    @Test
+    void duplicatesAreDroppedByHashThenByText() {
+        MemZeroMemoryContextPacker packer = packer(100, 0.0);
+
+        List<Document> packed = packer.pack(List.of(
+                new Document("m1", "likes movies", Map.of("type", "results", "score", 0.5, "hash", "h1")),
+                new Document("m2", "likes films", Map.of("type", "results", "score", 0.8, "hash", "h1")),
+                memory("m3", "lives in beijing", 0.7),
+                memory("m4", "lives in beijing", 0.6)));
+
+        // 同一 hash 保留分数更高的一条，没有 hash 时按文本去重
+        assertThat(packed).extracting(Document::getId).containsExactly("m2", "m3");
+    }
+
+    @Test
+    void memoriesAreOrderedByScoreAndRelationsComeLast() {
+        MemZeroMemoryContextPacker packer = packer(100, 0.0);
+
+        List<Document> packed = packer.pack(List.of(
+                relation("r1", "u1 -- likes -- hiking"),
+                memory("m1", "lives in beijing", 0.3),
+                relation("r2", "u1 -- lives_in -- beijing"),
+                memory("m2", "likes movies", 0.9)));
+
+        assertThat(packed).extracting(Document::getId).containsExactly("m2", "m1", "r1", "r2");
+    }
+
+    @Test
+    void emptyInputPacksNothing() {
+        assertThat(packer(100, 0.0).pack(List.of())).isEmpty();
+        assertThat(packer(100, 0.0).pack(null)).isEmpty();
+    }
+
+    private static MemZeroMemoryContextPacker packer(int tokenBudget, double minScore) {
+        TokenCountEstimator estimator = mock(TokenCountEstimator.class);
+        when(estimator.estimate(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).length());
+        return MemZeroMemoryContextPacker.builder()
+                .tokenBudget(tokenBudget)
+                .minScore(minScore)
+                .tokenCountEstimator(estimator)
+                .build();
+    }
+
+    private static Document memory(String id, String text, double score) {
+        return new Document(id, text, Map.of("type", "results", "score", score));
+    }
+
+    private static Document relation(String id, String text) {
+        return new Document(id, text, Map.of("type", "relations"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.document.Document;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MemZeroMemoryPrefetcherTest {
+
+    private final MemZeroServiceClient client = mock(MemZeroServiceClient.class);
+
+    private final ReactiveMemZeroServiceClient reactiveClient = mock(ReactiveMemZeroServiceClient.class);
+
+    private MemZeroMemoryStore store;
+
+    private MemZeroMemoryPrefetcher prefetcher;
+
+    @BeforeEach
+    void setUp() {
+        when(client.reactive()).thenReturn(reactiveClient);
+        when(reactiveClient.searchMemories(any())).thenReturn(Mono.just(response()));
+        store = MemZeroMemoryStore.builder(client).build();
+        prefetcher = MemZeroMemoryPrefetcher.builder(store)
+                .topN(20)
+                .maxAge(Duration.ofMinutes(1))
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+    }
+
+    @Test
+    void prefetchSearchesWithTheLastQueryAndALargerLimit() {
+        assertThat(prefetcher.search(search("周末去哪里爬山", 3))).isNull();
+
+        persist();
+
+        ArgumentCaptor<MemZeroServerRequest.SearchRequest> request = ArgumentCaptor.forClass(MemZeroServerRequest.SearchRequest.class);
+        verify(reactiveClient).searchMemories(request.capture());
+        assertThat(request.getValue().getQuery()).isEqualTo("周末去哪里爬山");
+        assertThat(request.getValue().getLimit()).isEqualTo(20);
+        assertThat(request.getValue().getUserId()).isEqualTo("u1");
+    }
+
+    @Test
+    void noPrefetchBeforeTheScopeHasAQuery() {
+        // 只有过滤条件的查询不能用于预取
+        MemZeroServerRequest.SearchRequest filtered = search("爬山", 3);
+        filtered.setFilters(Map.of("category", "hobby"));
+        prefetcher.search(filtered);
+
+        persist();
+
+        verify(reactiveClient, never()).searchMemories(any());
+    }
+
+    @Test
+    void hitKeepsMem0ScoresAndRelations() {
+        prefetcher.search(search("爬山", 2));
+        persist();
+
+        List<Document> documents = prefetcher.search(search("香山爬山", 2));
+
+        // 本地相似度只决定顺序，分数仍是 Mem0 返回的
+        assertThat(documents).hasSize(3);
+        assertThat(documents.subList(0, 2)).extracting(Document::getId).containsExactly("m2", "m1");
+        assertThat(documents.get(0).getMetadata()).containsEntry("score", 0.5);
+        assertThat(documents.get(1).getMetadata()).containsEntry("score", 0.9);
+        assertThat(documents.get(2).getMetadata()).containsEntry("type", "relations");
+        verify(reactiveClient, times(1)).searchMemories(any());
+    }
+
+    @Test
+    void limitLargerThanTheWarmSetFallsBackToMem0() {
+        prefetcher.search(search("爬山", 2));
+        persist();
+
+        assertThat(prefetcher.search(search("爬山", 50))).isNull();
+    }
+
+    @Test
+    void rerankBreaksTiesWithTheMem0Score() {
+        List<Document> documents = MemZeroMemoryPrefetcher.rerank("unrelated", List.of(
+                memory("a", "first memory", 0.2),
+                memory("b", "second memory", 0.8)), 1);
+
+        assertThat(documents).extracting(Document::getId).containsExactly("b");
+    }
+
+    private void persist() {
+        store.add(List.of(new Document("我周末去香山爬山", Map.of("user_id", "u1", "role", "user"))));
+    }
+
+    private static MemZeroServerRequest.SearchRequest search(String query, int limit) {
+        return MemZeroServerRequest.SearchRequest.builder()
+                .query(query)
+                .userId("u1")
+                .limit(limit)
+                .build();
+    }
+
+    private static MemZeroServerResp response() {
+        MemZeroServerResp.MemZeroRelation relation = new MemZeroServerResp.MemZeroRelation();
+        relation.setSource("u1");
+        relation.setRelationship("likes");
+        relation.setTarget("hiking");
+        return new MemZeroServerResp(new ArrayList<>(List.of(
+                result("m1", "喜欢看电影", 0.9),
+                result("m2", "周末常去香山爬山", 0.5),
+                result("m3", "住在北京", 0.3))), new ArrayList<>(List.of(relation)));
+    }
+
+    private static MemZeroServerResp.MemZeroResults result(String id, String memory, double score) {
+        MemZeroServerResp.MemZeroResults result = new MemZeroServerResp.MemZeroResults();
+        result.setId(id);
+        result.setMemory(memory);
+        result.setUserId("u1");
+        result.setScore(score);
+        return result;
+    }
+
+    private static Document memory(String id, String text, double score) {
+        return new Document(id, text, Map.of("type", "results", "score", score));
+    }
+}
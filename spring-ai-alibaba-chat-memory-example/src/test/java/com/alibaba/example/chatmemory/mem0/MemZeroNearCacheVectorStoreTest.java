@@ -0,0 +1,156 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MemZeroNearCacheVectorStoreTest {
+
+    private final MemZeroServiceClient client = mock(MemZeroServiceClient.class);
+
+    private final ReactiveMemZeroServiceClient reactiveClient = mock(ReactiveMemZeroServiceClient.class);
+
+    private MemZeroMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(client.reactive()).thenReturn(reactiveClient);
+        when(reactiveClient.searchMemories(any())).thenAnswer(invocation -> Mono.just(response()));
+        store = MemZeroMemoryStore.builder(client).build();
+    }
+
+    @Test
+    void similarQueryIsAnsweredWithMem0Results() {
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store));
+
+        List<Document> remote = search(nearCache, "u1", "我的爱好是什么", 3);
+        List<Document> local = search(nearCache, "u1", "我的爱好是什么？", 3);
+
+        verify(reactiveClient, times(1)).searchMemories(any());
+        // 顺序、分数和 relations 都是 Mem0 返回的
+        assertThat(local).isEqualTo(remote);
+        assertThat(local).extracting(document -> document.getMetadata().get("score")).containsExactly(0.9, 0.5, 0.3, null);
+        assertThat(local.get(3).getMetadata()).containsEntry("type", "relations");
+    }
+
+    @Test
+    void smallerLimitIsTruncatedAndLargerLimitGoesToMem0() {
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+
+        List<Document> local = search(nearCache, "u1", "我的爱好是什么", 2);
+        assertThat(local).hasSize(3);
+        assertThat(local.subList(0, 2)).extracting(Document::getId).containsExactly("m1", "m2");
+        assertThat(local.get(2).getMetadata()).containsEntry("type", "relations");
+        verify(reactiveClient, times(1)).searchMemories(any());
+
+        search(nearCache, "u1", "我的爱好是什么", 10);
+        verify(reactiveClient, times(2)).searchMemories(any());
+    }
+
+    @Test
+    void differentQueryAndOtherScopesGoToMem0() {
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+
+        search(nearCache, "u1", "我住在哪个城市", 3);
+        search(nearCache, "u2", "我的爱好是什么", 3);
+
+        verify(reactiveClient, times(3)).searchMemories(any());
+    }
+
+    @Test
+    void persistedWriteClearsTheScope() {
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+
+        nearCache.add(List.of(new Document("我最近开始学游泳", Map.of("user_id", "u1", "role", "user"))));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+
+        verify(reactiveClient, times(2)).searchMemories(any());
+    }
+
+    @Test
+    void writeToANarrowerScopeClearsBroaderScopes() {
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+        search(nearCache, "u2", "我的爱好是什么", 3);
+
+        // 写入 (u1, null, r1) 会改变 (u1, null, null) 的检索结果，u2 不受影响
+        nearCache.add(List.of(new Document("我最近开始学游泳", Map.of("user_id", "u1", "run_id", "r1", "role", "user"))));
+        search(nearCache, "u1", "我的爱好是什么", 3);
+        search(nearCache, "u2", "我的爱好是什么", 3);
+
+        verify(reactiveClient, times(3)).searchMemories(any());
+    }
+
+    @Test
+    void memoryCeilingIsEnforced() {
+        // 每个作用域的向量数组 16 * 2 * 4 = 128 字节，缓存一次结果的文本 78 字节，上限只够一个作用域
+        MemZeroNearCacheVectorStore nearCache = nearCache(MemZeroNearCacheVectorStore.builder(store)
+                .dimensions(16)
+                .maxQueriesPerScope(2)
+                .maxMemoryBytes(300));
+
+        search(nearCache, "u1", "我的爱好是什么", 3);
+        assertThat(nearCache.usedBytes()).isEqualTo(206);
+        search(nearCache, "u2", "我的爱好是什么", 3);
+        assertThat(nearCache.size()).isEqualTo(1);
+        assertThat(nearCache.usedBytes()).isEqualTo(206);
+
+        // 同一作用域的查询轮转复用向量数组
+        for (int i = 0; i < 10; i++) {
+            search(nearCache, "u2", "第 " + i + " 个问题", 3);
+            assertThat(nearCache.usedBytes()).isLessThanOrEqualTo(300);
+        }
+        assertThat(nearCache.size()).isEqualTo(1);
+    }
+
+    private static MemZeroNearCacheVectorStore nearCache(MemZeroNearCacheVectorStore.Builder builder) {
+        return builder.staleness(Duration.ofMinutes(1))
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+    }
+
+    private static List<Document> search(MemZeroNearCacheVectorStore nearCache, String userId, String query, int limit) {
+        return nearCache.similaritySearchReactive(MemZeroServerRequest.SearchRequest.builder()
+                .query(query)
+                .userId(userId)
+                .limit(limit)
+                .build()).block();
+    }
+
+    private static MemZeroServerResp response() {
+        MemZeroServerResp.MemZeroRelation relation = new MemZeroServerResp.MemZeroRelation();
+        relation.setSource("u1");
+        relation.setRelationship("likes");
+        relation.setTarget("hiking");
+        return new MemZeroServerResp(new ArrayList<>(List.of(
+                result("m1", "喜欢看电影", 0.9),
+                result("m2", "周末常去香山爬山", 0.5),
+                result("m3", "住在北京", 0.3))), new ArrayList<>(List.of(relation)));
+    }
+
+    private static MemZeroServerResp.MemZeroResults result(String id, String memory, double score) {
+        MemZeroServerResp.MemZeroResults result = new MemZeroServerResp.MemZeroResults();
+        result.setId(id);
+        result.setMemory(memory);
+        result.setUserId("u1");
+        result.setScore(score);
+        return result;
+    }
+}
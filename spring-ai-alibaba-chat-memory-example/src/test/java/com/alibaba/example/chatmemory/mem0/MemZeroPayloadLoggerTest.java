@@ -0,0 +1,152 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemZeroPayloadLoggerTest {
+
+    private final Logger payloadLogger = (Logger) LoggerFactory.getLogger("com.alibaba.example.chatmemory.mem0.payload");
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final AtomicInteger serialized = new AtomicInteger();
+
+    // 统计报文被序列化的次数
+    private final ObjectMapper objectMapper = new ObjectMapper() {
+        @Override
+        public void writeValue(Writer writer, Object value) throws IOException {
+            serialized.incrementAndGet();
+            super.writeValue(writer, value);
+        }
+    };
+
+    private Level level;
+
+    private boolean additive;
+
+    @BeforeEach
+    void setUp() {
+        level = payloadLogger.getLevel();
+        additive = payloadLogger.isAdditive();
+        payloadLogger.setLevel(Level.INFO);
+        // 只保留测试的 appender，控制台 appender 会格式化日志从而触发序列化
+        payloadLogger.setAdditive(false);
+        appender.start();
+        payloadLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        payloadLogger.detachAppender(appender);
+        payloadLogger.setLevel(level);
+        payloadLogger.setAdditive(additive);
+    }
+
+    @Test
+    void endpointsAreSampledWithTheirOwnRate() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 2048, 0.0, Map.of("memories", 1.0), objectMapper);
+
+        logger.log("search", Map.of("query", "hobby"), Mono.just(Map.of("results", "[]"))).block();
+        assertThat(appender.list).isEmpty();
+
+        logger.log("memories", Map.of("user_id", "u1"), Mono.just(Map.of("results", "[]"))).block();
+        assertThat(messages()).hasSize(2);
+        assertThat(messages().get(0)).isEqualTo("mem0 request endpoint=memories payload={\"user_id\":\"u1\"}");
+        assertThat(messages().get(1)).matches("mem0 response endpoint=memories elapsed_ms=\\d+ payload=\\{\"results\":\"\\[]\"}");
+    }
+
+    @Test
+    void defaultRateAppliesToOtherEndpoints() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 2048, 1.0, Map.of("search", 0.0), objectMapper);
+
+        logger.log("search", Map.of("query", "hobby"), Mono.just("ok")).block();
+        logger.log("history", null, Mono.just("ok")).block();
+
+        // 请求为空时只记录响应
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage()).startsWith("mem0 response endpoint=history");
+    }
+
+    @Test
+    void payloadIsTruncatedAtMaxPayloadChars() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 20, 1.0, Map.of(), objectMapper);
+
+        logger.log("search", Map.of("query", "a".repeat(100)), Mono.just(Map.of("ok", true))).block();
+
+        assertThat(appender.list.get(0).getFormattedMessage())
+                .isEqualTo("mem0 request endpoint=search payload={\"query\":\"aaaaaaaaaa...(truncated)");
+        assertThat(appender.list.get(1).getFormattedMessage()).endsWith("payload={\"ok\":true}");
+    }
+
+    @Test
+    void errorsAreLoggedWithoutAPayload() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 2048, 1.0, Map.of(), objectMapper);
+
+        logger.log("search", null, Mono.error(new IllegalStateException("boom")))
+                .onErrorResume(error -> Mono.empty())
+                .block();
+
+        assertThat(messages()).singleElement().asString()
+                .startsWith("mem0 response endpoint=search")
+                .endsWith("error=java.lang.IllegalStateException: boom");
+        assertThat(serialized).hasValue(0);
+    }
+
+    @Test
+    void payloadsAreSerializedOnlyWhenFormatted() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 2048, 1.0, Map.of(), objectMapper);
+
+        logger.log("search", Map.of("query", "hobby"), Mono.just("ok")).block();
+
+        // 日志事件还没有格式化时不序列化
+        assertThat(appender.list).hasSize(2);
+        assertThat(serialized).hasValue(0);
+        messages();
+        assertThat(serialized).hasValue(2);
+    }
+
+    @Test
+    void nothingIsSerializedWhenSamplingSkipsTheRequest() {
+        MemZeroPayloadLogger logger = new MemZeroPayloadLogger(true, 2048, 0.0, Map.of(), objectMapper);
+
+        logger.log("search", Map.of("query", "hobby"), Mono.just("ok")).block();
+
+        assertThat(appender.list).isEmpty();
+        assertThat(serialized).hasValue(0);
+    }
+
+    @Test
+    void nothingIsLoggedWhenDisabled() {
+        MemZeroPayloadLogger disabled = new MemZeroPayloadLogger(false, 2048, 1.0, Map.of(), objectMapper);
+        disabled.log("search", Map.of("query", "hobby"), Mono.just("ok")).block();
+
+        // 开启了但 logger 级别高于 INFO
+        payloadLogger.setLevel(Level.WARN);
+        MemZeroPayloadLogger quiet = new MemZeroPayloadLogger(true, 2048, 1.0, Map.of(), objectMapper);
+        Mono<String> exchange = Mono.just("ok");
+        assertThat(quiet.log("search", Map.of("query", "hobby"), exchange)).isSameAs(exchange);
+
+        assertThat(appender.list).isEmpty();
+        assertThat(serialized).hasValue(0);
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+}
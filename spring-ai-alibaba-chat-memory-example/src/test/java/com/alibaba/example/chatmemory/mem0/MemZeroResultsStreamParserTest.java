@@ -0,0 +1,143 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemZeroResultsStreamParserTest {
+
+    private static final String RESPONSE = "{\"results\":["
+            + "{\"id\":\"m1\",\"memory\":\"喜欢在香山爬山\",\"user_id\":\"u1\",\"metadata\":{\"tags\":[\"户外\",\"周末\"]}},"
+            + "{\"id\":\"m2\",\"memory\":\"likes hiking\",\"user_id\":\"u1\"}"
+            + "],\"relations\":[{\"source\":\"u1\",\"relationship\":\"likes\",\"target\":\"hiking\"}],\"next_cursor\":\"c2\"}";
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    void wholeResponseInOneBuffer() {
+        MemZeroResultsStreamParser parser = parser();
+
+        List<MemZeroServerResp.MemZeroResults> results = parse(parser, RESPONSE.getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE);
+
+        assertThat(results).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1", "m2");
+        assertThat(results.get(0).getMemory()).isEqualTo("喜欢在香山爬山");
+        assertThat(parser.nextCursor()).isEqualTo("c2");
+    }
+
+    @Test
+    void buffersSplitAtEveryByte() {
+        // 逐字节切分：字段名、字符串、数字和多字节 UTF-8 字符都会被切断
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+        for (int chunk = 1; chunk <= 7; chunk++) {
+            MemZeroResultsStreamParser parser = parser();
+            List<MemZeroServerResp.MemZeroResults> results = parse(parser, bytes, chunk);
+
+            assertThat(results).extracting(MemZeroServerResp.MemZeroResults::getMemory)
+                    .containsExactly("喜欢在香山爬山", "likes hiking");
+            assertThat(parser.nextCursor()).isEqualTo("c2");
+        }
+    }
+
+    @Test
+    void multibyteCharacterSplitAcrossBuffers() {
+        byte[] bytes = "{\"results\":[{\"id\":\"m1\",\"memory\":\"香山\"}]}".getBytes(StandardCharsets.UTF_8);
+        // "香" 占 3 个字节，在第 2 个字节处切开
+        int characterStart = indexOf(bytes, "香".getBytes(StandardCharsets.UTF_8));
+        MemZeroResultsStreamParser parser = parser();
+
+        List<MemZeroServerResp.MemZeroResults> results = new ArrayList<>(parser.feed(buffer(Arrays.copyOfRange(bytes, 0, characterStart + 2))));
+        assertThat(results).isEmpty();
+        results.addAll(parser.feed(buffer(Arrays.copyOfRange(bytes, characterStart + 2, bytes.length))));
+        results.addAll(parser.endOfInput());
+
+        assertThat(results).extracting(MemZeroServerResp.MemZeroResults::getMemory).containsExactly("香山");
+    }
+
+    @Test
+    void resultsAreEmittedAsSoonAsTheyAreComplete() {
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        int secondElement = indexOf(bytes, "{\"id\":\"m2\"".getBytes(StandardCharsets.UTF_8));
+        MemZeroResultsStreamParser parser = parser();
+
+        List<MemZeroServerResp.MemZeroResults> first = parser.feed(buffer(Arrays.copyOfRange(bytes, 0, secondElement + 3)));
+
+        assertThat(first).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1");
+    }
+
+    @Test
+    void relationsBeforeResultsAreSkipped() {
+        String response = "{\"relations\":[{\"source\":\"u1\",\"relationship\":\"likes\",\"target\":\"hiking\","
+                + "\"results\":[{\"id\":\"not-a-memory\"}]}],\"results\":[{\"id\":\"m1\",\"memory\":\"likes hiking\"}]}";
+
+        List<MemZeroServerResp.MemZeroResults> results = parse(parser(), response.getBytes(StandardCharsets.UTF_8), 5);
+
+        assertThat(results).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1");
+    }
+
+    @Test
+    void emptyResults() {
+        MemZeroResultsStreamParser parser = parser();
+
+        assertThat(parse(parser, "{\"results\":[],\"relations\":[],\"next_cursor\":null}".getBytes(StandardCharsets.UTF_8), 3)).isEmpty();
+        assertThat(parser.nextCursor()).isNull();
+        assertThat(parse(parser(), "[]".getBytes(StandardCharsets.UTF_8), 1)).isEmpty();
+    }
+
+    @Test
+    void topLevelArray() {
+        List<MemZeroServerResp.MemZeroResults> results = parse(parser(),
+                "[{\"id\":\"m1\",\"memory\":\"a\"},{\"id\":\"m2\",\"memory\":\"b\"}]".getBytes(StandardCharsets.UTF_8), 4);
+
+        assertThat(results).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1", "m2");
+    }
+
+    @Test
+    void truncatedResponseFails() {
+        MemZeroResultsStreamParser parser = parser();
+        parser.feed(buffer("{\"results\":[{\"id\":\"m1\"".getBytes(StandardCharsets.UTF_8)));
+
+        assertThatThrownBy(parser::endOfInput).isInstanceOf(RuntimeException.class);
+    }
+
+    private static MemZeroResultsStreamParser parser() {
+        return new MemZeroResultsStreamParser(ReactiveMemZeroServiceClient.createObjectMapper());
+    }
+
+    /**
+     * 按 chunk 字节切分后逐段输入
+     */
+    private List<MemZeroServerResp.MemZeroResults> parse(MemZeroResultsStreamParser parser, byte[] bytes, int chunk) {
+        List<MemZeroServerResp.MemZeroResults> results = new ArrayList<>();
+        for (int start = 0; start < bytes.length; start += chunk) {
+            results.addAll(parser.feed(buffer(Arrays.copyOfRange(bytes, start, Math.min(bytes.length, start + chunk)))));
+        }
+        results.addAll(parser.endOfInput());
+        return results;
+    }
+
+    private DataBuffer buffer(byte[] bytes) {
+        return bufferFactory.wrap(bytes);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        outer:
+        for (int i = 0; i <= bytes.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemZeroRetryPolicyTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void idempotentRequestIsRetriedOnRetryableStatus() {
+        MemZeroRetryPolicy policy = policy(3, 0.2, 20);
+
+        StepVerifier.create(policy.idempotent(failingTimes(2, WebClientResponseException.create(503, "Service Unavailable", null, null, null))))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void nonIdempotentRequestIsNotRetriedOnReadTimeout() {
+        MemZeroRetryPolicy policy = policy(3, 0.2, 20);
+
+        // 请求可能已经到达服务端，重试会产生重复记忆
+        StepVerifier.create(policy.nonIdempotent(failingTimes(1, requestException(ReadTimeoutException.INSTANCE))))
+                .expectError(WebClientRequestException.class)
+                .verify();
+        StepVerifier.create(policy.nonIdempotent(failingTimes(1, new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void nonIdempotentRequestIsRetriedWhenTheConnectionFailed() {
+        MemZeroRetryPolicy policy = policy(3, 0.2, 20);
+
+        StepVerifier.create(policy.nonIdempotent(failingTimes(1, requestException(new ConnectException("refused")))))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void exhaustedBudgetFailsFast() {
+        // 不再补充令牌，只有初始的 2 个
+        MemZeroRetryPolicy policy = policy(3, 0, 2);
+
+        StepVerifier.create(policy.idempotent(failingTimes(Integer.MAX_VALUE, new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+        assertThat(attempts).hasValue(3);
+
+        attempts.set(0);
+        StepVerifier.create(policy.idempotent(failingTimes(Integer.MAX_VALUE, new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void nonRetryableStatusIsNotRetried() {
+        MemZeroRetryPolicy policy = policy(3, 0.2, 20);
+
+        StepVerifier.create(policy.idempotent(failingTimes(1, WebClientResponseException.create(400, "Bad Request", null, null, null))))
+                .expectError(WebClientResponseException.BadRequest.class)
+                .verify();
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    private static MemZeroRetryPolicy policy(int maxAttempts, double budgetRatio, int budgetMaxTokens) {
+        return new MemZeroRetryPolicy(maxAttempts, Duration.ofMillis(1), Duration.ofMillis(5), 0,
+                Set.of(429, 502, 503, 504), budgetRatio, budgetMaxTokens);
+    }
+
+    /**
+     * 前 failures 次订阅失败，之后返回 "ok"
+     */
+    private Mono<String> failingTimes(int failures, Throwable error) {
+        return Mono.defer(() -> attempts.incrementAndGet() <= failures ? Mono.error(error) : Mono.just("ok"));
+    }
+
+    private static WebClientRequestException requestException(Throwable cause) {
+        return new WebClientRequestException(cause, HttpMethod.POST, URI.create("http://localhost/memories"), new HttpHeaders());
+    }
+}
@@ -0,0 +1,126 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemZeroSearchCacheTest {
+
+    private final MemZeroSearchCache cache = new MemZeroSearchCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void hitReturnsCachedResponse() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.all("u1", null, null);
+
+        cache.get(key, () -> load(response("u1", "m1"))).block();
+        MemZeroServerResp hit = cache.get(key, () -> load(response("u1", "m2"))).block();
+
+        assertThat(loads).hasValue(1);
+        assertThat(hit.getResults()).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1");
+    }
+
+    @Test
+    void callersGetCopiesOfTheCachedResponse() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.all("u1", null, null);
+
+        MemZeroServerResp loaded = cache.get(key, () -> load(response("u1", "m1"))).block();
+        loaded.getResults().get(0).setMemory("changed by the first caller");
+        MemZeroServerResp hit = cache.get(key, () -> load(response("u1", "m2"))).block();
+        hit.getResults().clear();
+        MemZeroServerResp secondHit = cache.get(key, () -> load(response("u1", "m2"))).block();
+
+        assertThat(secondHit.getResults()).hasSize(1);
+        assertThat(secondHit.getResults().get(0).getMemory()).isEqualTo("memory m1");
+    }
+
+    @Test
+    void loadStartedBeforeAnInvalidationIsNotCached() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.all("u1", null, null);
+        Sinks.One<MemZeroServerResp> inFlight = Sinks.one();
+        List<MemZeroServerResp> received = new ArrayList<>();
+        cache.get(key, () -> inFlight.asMono()).subscribe(received::add);
+
+        // 写入在检索进行中完成
+        cache.invalidateScope("u1", null, null);
+        inFlight.tryEmitValue(response("u1", "stale"));
+
+        assertThat(received).hasSize(1);
+        MemZeroServerResp next = cache.get(key, () -> load(response("u1", "fresh"))).block();
+        assertThat(loads).hasValue(1);
+        assertThat(next.getResults()).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("fresh");
+    }
+
+    @Test
+    void invalidationOfAnotherScopeDoesNotDiscardALoad() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.all("u1", null, null);
+        Sinks.One<MemZeroServerResp> inFlight = Sinks.one();
+        cache.get(key, () -> inFlight.asMono()).subscribe();
+
+        cache.invalidateScope("u2", null, null);
+        inFlight.tryEmitValue(response("u1", "m1"));
+
+        cache.get(key, () -> load(response("u1", "m2"))).block();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void unknownMemoryIdDoesNotFlushTheCache() {
+        cache.get(MemZeroSearchCache.CacheKey.all("u1", null, null), () -> load(response("u1", "m1"))).block();
+        cache.get(MemZeroSearchCache.CacheKey.all("u2", null, null), () -> load(response("u2", "m2"))).block();
+
+        cache.invalidateMemory("not-cached");
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void indexedMemoryIdInvalidatesOnlyItsScope() {
+        cache.get(MemZeroSearchCache.CacheKey.all("u1", null, null), () -> load(response("u1", "m1"))).block();
+        cache.get(MemZeroSearchCache.CacheKey.all("u2", null, null), () -> load(response("u2", "m2"))).block();
+        cache.get(MemZeroSearchCache.CacheKey.memory("m1"), () -> load(response("u1", "m1"))).block();
+
+        cache.invalidateMemory("m1");
+
+        assertThat(cache.size()).isEqualTo(1);
+        cache.get(MemZeroSearchCache.CacheKey.all("u2", null, null), () -> load(response("u2", "other"))).block();
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void inFlightLoadContainingAnUpdatedMemoryIsNotCached() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.all("u1", null, null);
+        Sinks.One<MemZeroServerResp> inFlight = Sinks.one();
+        cache.get(key, () -> inFlight.asMono()).subscribe();
+
+        // m1 还没有被任何缓存项引用
+        cache.invalidateMemory("m1");
+        inFlight.tryEmitValue(response("u1", "m1"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    private Mono<MemZeroServerResp> load(MemZeroServerResp response) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return response;
+        });
+    }
+
+    private static MemZeroServerResp response(String userId, String memoryId) {
+        MemZeroServerResp.MemZeroResults result = new MemZeroServerResp.MemZeroResults();
+        result.setId(memoryId);
+        result.setMemory("memory " + memoryId);
+        result.setUserId(userId);
+        return new MemZeroServerResp(new ArrayList<>(List.of(result)), new ArrayList<>());
+    }
+}
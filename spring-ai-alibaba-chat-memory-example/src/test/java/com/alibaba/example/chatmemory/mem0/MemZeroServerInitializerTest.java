@@ -0,0 +1,135 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MemZeroServerInitializerTest {
+
+    private final ReactiveMemZeroServiceClient client = mock(ReactiveMemZeroServiceClient.class);
+
+    private final MemZeroChatMemoryProperties.Server server = new MemZeroChatMemoryProperties.Server();
+
+    private final AtomicInteger configureCalls = new AtomicInteger();
+
+    private MemZeroServerInitializer initializer;
+
+    @AfterEach
+    void tearDown() {
+        if (initializer != null) {
+            initializer.stop();
+        }
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void retriesWithBackoffUntilConfigured() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        // 前两次 /configure 失败
+        when(client.configure(server)).thenReturn(configure(2));
+        initializer = new MemZeroServerInitializer(client, server, Duration.ofSeconds(1), Duration.ofSeconds(10), 0,
+                Duration.ofSeconds(1));
+
+        initializer.start();
+        assertThat(initializer.getState()).isEqualTo(MemZeroServerInitializer.State.CONFIGURING);
+        assertThat(initializer.getAttempts()).isEqualTo(1);
+        assertThat(initializer.getLastError()).hasMessage("Mem0 is starting");
+
+        // 第一次退避至少 minBackoff
+        scheduler.advanceTimeBy(Duration.ofMillis(999));
+        assertThat(configureCalls).hasValue(1);
+        scheduler.advanceTimeBy(Duration.ofMillis(501));
+        assertThat(configureCalls).hasValue(2);
+        scheduler.advanceTimeBy(Duration.ofSeconds(3));
+
+        assertThat(configureCalls).hasValue(3);
+        assertThat(initializer.getAttempts()).isEqualTo(3);
+        assertThat(initializer.getState()).isEqualTo(MemZeroServerInitializer.State.READY);
+        assertThat(initializer.getLastError()).isNull();
+        StepVerifier.create(readinessGate()).verifyComplete();
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        when(client.configure(server)).thenReturn(configure(Integer.MAX_VALUE));
+        initializer = new MemZeroServerInitializer(client, server, Duration.ofSeconds(1), Duration.ofSeconds(10), 3,
+                Duration.ofSeconds(1));
+
+        initializer.start();
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+
+        assertThat(configureCalls).hasValue(3);
+        assertThat(initializer.getState()).isEqualTo(MemZeroServerInitializer.State.FAILED);
+        assertThat(initializer.getLastError()).hasRootCauseMessage("Mem0 is starting");
+        // 失败后不再等待，请求立即按未配置处理
+        StepVerifier.create(readinessGate()).verifyError(MemZeroNotConfiguredException.class);
+    }
+
+    @Test
+    void readinessGateTimesOutWhileConfiguring() {
+        when(client.configure(server)).thenReturn(Mono.never());
+        initializer = new MemZeroServerInitializer(client, server, Duration.ofSeconds(1), Duration.ofSeconds(10), 0,
+                Duration.ofMillis(50));
+        initializer.start();
+
+        StepVerifier.create(readinessGate())
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(MemZeroNotConfiguredException.class)
+                        .hasMessageContaining("CONFIGURING"))
+                .verify(Duration.ofSeconds(5));
+        assertThat(initializer.isRunning()).isTrue();
+    }
+
+    @Test
+    void readinessGateReleasesWaitingRequestsOnceConfigured() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        when(client.configure(server)).thenReturn(configure(1));
+        initializer = new MemZeroServerInitializer(client, server, Duration.ofSeconds(1), Duration.ofSeconds(10), 0,
+                Duration.ofSeconds(30));
+        initializer.start();
+
+        // 请求在配置完成前进入，配置完成后继续发出
+        StepVerifier.withVirtualTime(this::readinessGate, () -> scheduler, Long.MAX_VALUE)
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(2))
+                .verifyComplete();
+        assertThat(initializer.getState()).isEqualTo(MemZeroServerInitializer.State.READY);
+    }
+
+    @Test
+    void zeroRequestWaitFailsFastBeforeReady() {
+        when(client.configure(server)).thenReturn(Mono.never());
+        initializer = new MemZeroServerInitializer(client, server, Duration.ofSeconds(1), Duration.ofSeconds(10), 0,
+                Duration.ZERO);
+
+        assertThat(initializer.getState()).isEqualTo(MemZeroServerInitializer.State.PENDING);
+        StepVerifier.create(readinessGate()).verifyError(MemZeroNotConfiguredException.class);
+    }
+
+    // 前 failures 次调用失败，之后成功
+    private Mono<Void> configure(int failures) {
+        return Mono.defer(() -> configureCalls.incrementAndGet() <= failures
+                ? Mono.error(new MemZeroUnavailableException("Mem0 is starting"))
+                : Mono.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<Void> readinessGate() {
+        ArgumentCaptor<Mono<Void>> gate = ArgumentCaptor.forClass(Mono.class);
+        verify(client).setReadinessGate(gate.capture());
+        return gate.getValue();
+    }
+}
@@ -0,0 +1,114 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemZeroSingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MemZeroSingleFlight singleFlight = new MemZeroSingleFlight(meterRegistry);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalSearchesReachMem0Once() throws Exception {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.search(searchRequest());
+        Sinks.One<MemZeroServerResp> mem0 = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MemZeroServerResp>> responses = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            responses.add(executor.submit(() -> {
+                start.await();
+                return singleFlight.execute(key, () -> {
+                    loads.incrementAndGet();
+                    return mem0.asMono();
+                }).block();
+            }));
+        }
+
+        start.countDown();
+        // 所有调用方都合并到进行中的请求后再返回结果
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        mem0.tryEmitValue(response("m1"));
+
+        List<MemZeroServerResp> received = new ArrayList<>();
+        for (Future<MemZeroServerResp> response : responses) {
+            received.add(response.get(5, TimeUnit.SECONDS));
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(coalesced()).isEqualTo(CALLERS - 1);
+        assertThat(meterRegistry.find("mem0.client.coalesced").counters()).hasSize(1);
+        assertThat(singleFlight.size()).isZero();
+        assertThat(received).allSatisfy(response ->
+                assertThat(response.getResults()).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("m1"));
+    }
+
+    @Test
+    void joinersGetTheirOwnCopy() {
+        MemZeroSearchCache.CacheKey key = MemZeroSearchCache.CacheKey.search(searchRequest());
+        Sinks.One<MemZeroServerResp> mem0 = Sinks.one();
+        List<MemZeroServerResp> received = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            singleFlight.execute(key, mem0::asMono).subscribe(received::add);
+        }
+
+        mem0.tryEmitValue(response("m1"));
+
+        assertThat(received).hasSize(3);
+        // 修改其中一份不影响其他调用方
+        received.get(1).getResults().get(0).setMemory("changed by a joiner");
+        received.get(2).getResults().clear();
+        assertThat(received.get(0).getResults().get(0).getMemory()).isEqualTo("memory m1");
+        assertThat(received.get(1).getResults()).isNotSameAs(received.get(0).getResults());
+        assertThat(received.get(2).getResults()).isEmpty();
+        assertThat(received.get(0).getResults()).hasSize(1);
+    }
+
+    // 第一次合并时才注册计数器
+    private double coalesced() {
+        Counter counter = meterRegistry.find("mem0.client.coalesced").tag("endpoint", "search").counter();
+        return counter != null ? counter.count() : 0.0;
+    }
+
+    private static MemZeroServerRequest.SearchRequest searchRequest() {
+        return MemZeroServerRequest.SearchRequest.builder()
+                .query("我的爱好是什么")
+                .userId("u1")
+                .limit(3)
+                .build();
+    }
+
+    private static MemZeroServerResp response(String id) {
+        MemZeroServerResp.MemZeroResults result = new MemZeroServerResp.MemZeroResults();
+        result.setId(id);
+        result.setMemory("memory " + id);
+        result.setUserId("u1");
+        return new MemZeroServerResp(new ArrayList<>(List.of(result)), new ArrayList<>());
+    }
+}
@@ -0,0 +1,210 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties.Client.WriteBehind.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class MemZeroWriteBehindQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MemZeroServiceClient client = mock(MemZeroServiceClient.class);
+
+    private MemZeroWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    @Test
+    void writesOfOneScopeArePersistedInSubmitOrder() throws InterruptedException {
+        Map<String, List<Integer>> persisted = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(200);
+        doAnswer(invocation -> {
+            MemZeroServerRequest.MemoryCreate memoryCreate = invocation.getArgument(0);
+            // 让不同分片的写入交错
+            Thread.sleep(1);
+            persisted.computeIfAbsent(memoryCreate.getUserId(), key -> new CopyOnWriteArrayList<>())
+                    .add(sequence(memoryCreate));
+            done.countDown();
+            return null;
+        }).when(client).addMemory(any());
+        queue = newQueue(1000, 4, OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 50; i++) {
+            for (String userId : List.of("u1", "u2", "u3", "u4")) {
+                queue.submit(memory(userId, i));
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(persisted).hasSize(4);
+        persisted.values().forEach(sequences -> assertThat(sequences).isSorted().hasSize(50));
+    }
+
+    @Test
+    void dropOldestNeverWritesOnTheCallerThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> writerThreads = new CopyOnWriteArrayList<>();
+        List<Integer> persisted = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            MemZeroServerRequest.MemoryCreate memoryCreate = invocation.getArgument(0);
+            writerThreads.add(Thread.currentThread().getName());
+            started.countDown();
+            release.await();
+            persisted.add(sequence(memoryCreate));
+            return null;
+        }).when(client).addMemory(any());
+        queue = newQueue(1, 1, OverflowPolicy.DROP_OLDEST);
+
+        queue.submit(memory("u1", 1));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // 写入线程被占用，队列容量为 1
+        queue.submit(memory("u1", 2));
+        queue.submit(memory("u1", 3));
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(dropped()).isEqualTo(1.0);
+
+        release.countDown();
+        queue.destroy();
+        queue = null;
+
+        assertThat(persisted).containsExactly(1, 3);
+        assertThat(writerThreads).allMatch(name -> name.startsWith("mem0-write-behind-"));
+    }
+
+    @Test
+    void blockGivesUpAfterTheTimeout() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(client).addMemory(any());
+        queue = newQueue(1, 1, OverflowPolicy.BLOCK);
+
+        queue.submit(memory("u1", 1));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.submit(memory("u1", 2));
+        long start = System.nanoTime();
+        queue.submit(memory("u1", 3));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(waitedMillis).isBetween(90L, 5000L);
+        assertThat(dropped()).isEqualTo(1.0);
+        release.countDown();
+    }
+
+    @Test
+    void submitAfterShutdownIsRejected() throws InterruptedException {
+        List<Integer> persisted = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            persisted.add(sequence(invocation.getArgument(0)));
+            return null;
+        }).when(client).addMemory(any());
+        queue = newQueue(10, 1, OverflowPolicy.DROP_OLDEST);
+        queue.destroy();
+
+        queue.submit(memory("u1", 1));
+
+        assertThat(persisted).isEmpty();
+        assertThat(dropped()).isEqualTo(1.0);
+        queue = null;
+    }
+
+    @Test
+    void writesHeldBehindTheSpoolKeepSubmitOrder() throws InterruptedException {
+        AtomicBoolean unavailable = new AtomicBoolean(true);
+        List<Integer> persisted = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        doAnswer(invocation -> {
+            MemZeroServerRequest.MemoryCreate memoryCreate = invocation.getArgument(0);
+            // 只有第一次写入遇到 Mem0 不可用
+            if (unavailable.compareAndSet(true, false)) {
+                throw new MemZeroUnavailableException("Mem0 is unavailable");
+            }
+            persisted.add(sequence(memoryCreate));
+            done.countDown();
+            return null;
+        }).when(client).addMemory(any());
+        queue = new MemZeroWriteBehindQueue(client, 10, 1, OverflowPolicy.BLOCK, Duration.ofMillis(100),
+                Duration.ofSeconds(5), 10, Duration.ofMillis(50), meterRegistry);
+
+        queue.submit(memory("u1", 1));
+        queue.submit(memory("u1", 2));
+        queue.submit(memory("u1", 3));
+
+        // 2 和 3 在 Mem0 已恢复时出队，也要等 1 补写之后再写
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(persisted).containsExactly(1, 2, 3);
+        assertThat(queue.spoolSize()).isZero();
+    }
+
+    @Test
+    void destroyFlushesTheSpool() throws InterruptedException {
+        AtomicBoolean unavailable = new AtomicBoolean(true);
+        List<Integer> persisted = new CopyOnWriteArrayList<>();
+        CountDownLatch spooled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (unavailable.compareAndSet(true, false)) {
+                spooled.countDown();
+                throw new MemZeroUnavailableException("Mem0 is unavailable");
+            }
+            persisted.add(sequence(invocation.getArgument(0)));
+            return null;
+        }).when(client).addMemory(any());
+        // 补写间隔足够长，只有关闭时会补写
+        queue = new MemZeroWriteBehindQueue(client, 10, 1, OverflowPolicy.BLOCK, Duration.ofMillis(100),
+                Duration.ofSeconds(5), 10, Duration.ofMinutes(10), meterRegistry);
+
+        queue.submit(memory("u1", 1));
+        assertThat(spooled.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.submit(memory("u1", 2));
+        queue.destroy();
+
+        assertThat(persisted).containsExactly(1, 2);
+        assertThat(queue.spoolSize()).isZero();
+        queue = null;
+    }
+
+    private MemZeroWriteBehindQueue newQueue(int capacity, int concurrency, OverflowPolicy policy) {
+        return new MemZeroWriteBehindQueue(client, capacity, concurrency, policy, Duration.ofMillis(100),
+                Duration.ofSeconds(5), 0, Duration.ofSeconds(30), meterRegistry);
+    }
+
+    private double dropped() {
+        return meterRegistry.get("mem0.writebehind.writes").tag("outcome", "dropped").counter().count();
+    }
+
+    // 同一 userId 属于同一个作用域，消息内容是提交顺序
+    private static MemZeroServerRequest.MemoryCreate memory(String userId, int sequence) {
+        return MemZeroServerRequest.MemoryCreate.builder()
+                .userId(userId)
+                .messages(List.of(new MemZeroServerRequest.Message("user", String.valueOf(sequence))))
+                .build();
+    }
+
+    private static int sequence(MemZeroServerRequest.MemoryCreate memoryCreate) {
+        return Integer.parseInt(memoryCreate.getMessages().get(0).getContent());
+    }
+}
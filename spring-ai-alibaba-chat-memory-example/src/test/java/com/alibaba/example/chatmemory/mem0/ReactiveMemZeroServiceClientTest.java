@@ -0,0 +1,169 @@
+package com.alibaba.example.chatmemory.mem0;
+
+import com.alibaba.example.chatmemory.config.MemZeroChatMemoryProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 使用本地 HTTP 服务模拟 Mem0，验证客户端的缓存行为
+ */
+class ReactiveMemZeroServiceClientTest {
+
+    private final AtomicInteger adds = new AtomicInteger();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 收到的分页请求的游标，第一页为 "-"
+    private final List<String> cursors = new CopyOnWriteArrayList<>();
+
+    private DisposableServer server;
+
+    private ReactiveMemZeroServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .post("/memories", (request, response) -> request.receive().aggregate()
+                                .then(Mono.fromRunnable(adds::incrementAndGet))
+                                .then(response.header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"results\":[]}"))
+                                        .then()))
+                        // 返回的记忆 id 是当前已写入的次数
+                        .post("/search", (request, response) -> request.receive().aggregate()
+                                .then(response.header("Content-Type", "application/json")
+                                        .sendString(Mono.fromSupplier(() -> "{\"results\":[{\"id\":\"m" + adds.get()
+                                                + "\",\"memory\":\"memory\",\"user_id\":\"u1\"}],\"relations\":[]}"))
+                                        .then()))
+                        // 作用域内有 5 条记忆，游标是上一页最后一条的下标
+                        .get("/memories", (request, response) -> {
+                            Map<String, List<String>> query = new QueryStringDecoder(request.uri()).parameters();
+                            int limit = Integer.parseInt(query.get("limit").get(0));
+                            String cursor = query.containsKey("cursor") ? query.get("cursor").get(0) : null;
+                            cursors.add(cursor == null ? "-" : cursor);
+                            int from = cursor == null ? 0 : Integer.parseInt(cursor) + 1;
+                            int to = Math.min(5, from + limit);
+                            List<String> results = new ArrayList<>();
+                            for (int i = from; i < to; i++) {
+                                results.add("{\"id\":\"p" + i + "\",\"memory\":\"memory " + i + "\",\"user_id\":\"u1\"}");
+                            }
+                            String relations = cursor == null
+                                    ? ",\"relations\":[{\"source\":\"u1\",\"relationship\":\"likes\",\"target\":\"hiking\"}]" : "";
+                            String nextCursor = to - from == limit ? "\"" + (to - 1) + "\"" : "null";
+                            return response.header("Content-Type", "application/json")
+                                    .sendString(Mono.just("{\"results\":[" + String.join(",", results) + "]" + relations
+                                            + ",\"next_cursor\":" + nextCursor + "}"));
+                        }))
+                .bindNow();
+        MemZeroChatMemoryProperties properties = new MemZeroChatMemoryProperties();
+        properties.setClient(new MemZeroChatMemoryProperties.Client());
+        properties.getClient().setBaseUrl("http://localhost:" + server.port());
+        properties.getClient().setPageSize(2);
+        client = new ReactiveMemZeroServiceClient(properties, new DefaultResourceLoader(),
+                new MemZeroSearchCache(100, Duration.ofMinutes(1), meterRegistry),
+                MemZeroCircuitBreaker.from(properties.getClient(), meterRegistry), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.destroy();
+        server.disposeNow();
+    }
+
+    @Test
+    void searchAfterAWriteDoesNotReadTheCachedResponse() {
+        for (int i = 0; i < 50; i++) {
+            assertThat(firstMemoryId()).isEqualTo("m" + i);
+            client.addMemory(MemZeroServerRequest.MemoryCreate.builder()
+                    .userId("u1")
+                    .messages(List.of(new MemZeroServerRequest.Message("user", "message " + i)))
+                    .build()).block();
+            assertThat(firstMemoryId()).isEqualTo("m" + (i + 1));
+        }
+    }
+
+    @Test
+    void repeatedSearchIsServedFromTheCache() {
+        firstMemoryId();
+        firstMemoryId();
+
+        assertThat(meterRegistry.get("mem0.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void requestTimersAreRegisteredOnceAndReused() {
+        // 成功请求的 Timer 在构造时已经注册
+        assertThat(searchTimer().count()).isZero();
+
+        firstMemoryId();
+        client.addMemory(MemZeroServerRequest.MemoryCreate.builder()
+                .userId("u1")
+                .messages(List.of(new MemZeroServerRequest.Message("user", "message")))
+                .build()).block();
+        firstMemoryId();
+
+        assertThat(searchTimer().count()).isEqualTo(2);
+        assertThat(meterRegistry.find("mem0.client.requests").tag("endpoint", "search").timers()).hasSize(1);
+    }
+
+    @Test
+    void streamAllMemoriesFollowsTheCursor() {
+        List<String> ids = client.streamAllMemories("u1", null, null, null)
+                .map(MemZeroServerResp.MemZeroResults::getId)
+                .collectList()
+                .block();
+
+        assertThat(ids).containsExactly("p0", "p1", "p2", "p3", "p4");
+        assertThat(cursors).containsExactly("-", "1", "3");
+        assertThat(meterRegistry.get("mem0.client.requests").tag("endpoint", "memories").tag("method", "GET")
+                .tag("outcome", "success").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void blankQueryWithLimitKeepsRelations() {
+        MemZeroServerResp response = client.searchMemories(MemZeroServerRequest.SearchRequest.builder()
+                .query("")
+                .userId("u1")
+                .limit(2)
+                .build()).block();
+
+        assertThat(response.getResults()).extracting(MemZeroServerResp.MemZeroResults::getId).containsExactly("p0", "p1");
+        assertThat(response.getRelations()).extracting(MemZeroServerResp.MemZeroRelation::getTarget).containsExactly("hiking");
+        assertThat(cursors).containsExactly("-");
+    }
+
+    private Timer searchTimer() {
+        return meterRegistry.get("mem0.client.requests")
+                .tag("endpoint", "search")
+                .tag("method", "POST")
+                .tag("outcome", "success")
+                .tag("status", "2xx")
+                .timer();
+    }
+
+    private String firstMemoryId() {
+        MemZeroServerResp response = client.searchMemories(MemZeroServerRequest.SearchRequest.builder()
+                .query("hobby")
+                .userId("u1")
+                .build()).block();
+        return response.getResults().get(0).getId();
+    }
+}